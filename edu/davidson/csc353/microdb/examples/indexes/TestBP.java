@@ -46,8 +46,6 @@ public class TestBP {
 				break; // prints only the first result
 			}
 
-			// TODO: Uncomment this to test the BPIndex
-			/*
 			for(RecordLocation location: studentIndex2.get(queries[i])) {
 				if(location == null) {
 					System.out.println("NULL result");
@@ -61,7 +59,6 @@ public class TestBP {
 				System.out.println(record.getTuple());
 				break; // prints only the first result
 			}
-			*/
 		}
 	}
 }
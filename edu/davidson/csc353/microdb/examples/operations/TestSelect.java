@@ -62,5 +62,14 @@ public class TestSelect {
 			System.out.println(record);
 		}
 
+		System.out.println("---------------");
+
+		// Parallel selection over the result of a previous selection:
+		// only the Comp. Sci. students are tested, not the whole relation
+		ParallelSelector<Student> parallelSelector = new ParallelSelector<Student>(selector.selectMatchingKeys(studentIndex2, "Comp. Sci."));
+
+		for(Record<Student> record: parallelSelector.selectPredicate((t) -> t.credits > 60)) {
+			System.out.println(record);
+		}
 	}
 }
@@ -25,16 +25,81 @@ public class Block<T extends Tuple> implements Iterable<Record<T>> {
 
 	private int freeSize;
 
+	// Compressed blocks are filled while their compressed records fit in the page;
+	// their compressor is rebuilt from the records whenever it is missing
+	private boolean compressed;
+	private BlockCompressor compressor;
+
 	public Block(int blockNumber) {
-		this.buffer = ByteBuffer.allocateDirect(Block.SIZE);
+		this(blockNumber, false);
+	}
+
+	public Block(int blockNumber, boolean compressed) {
+		this(blockNumber, compressed, ByteBuffer.allocateDirect(Block.SIZE));
+	}
+
+	private Block(int blockNumber, boolean compressed, ByteBuffer buffer) {
+		this.buffer = buffer;
 		this.blockNumber = blockNumber;
 
 		records = new ArrayList<Record<T>>();
 
 		freeSize = Block.SIZE - Integer.BYTES;
+
+		this.compressed = compressed;
+		this.compressor = null;
+	}
+
+	// The same records under another block number (e.g., in a concatenation of relations).
+	// The records are copied, sharing their tuples, so the original block is left alone.
+	Block<T> renumber(int blockNumber) {
+		Block<T> copy = new Block<T>(blockNumber, compressed, buffer);
+
+		copy.freeSize = freeSize;
+
+		for(Record<T> record: records) {
+			copy.records.add(new Record<T>(blockNumber, record.getRecordNumber(), record.getTuple()));
+		}
+
+		return copy;
+	}
+
+	public boolean isCompressed() {
+		return compressed;
 	}
 
+	private BlockCompressor getCompressor() {
+		if(compressor == null) {
+			compressor = new BlockCompressor();
+
+			for(Record<T> record: records) {
+				compressor.add(record.save().getBytes());
+			}
+		}
+
+		return compressor;
+	}
+
+	// Pages of both formats are read: compressed ones are recognized by their header
 	public void loadBuffer(Supplier<T> tupleMaker) {
+		if(BlockCompressor.isCompressed(buffer)) {
+			compressed = true;
+			compressor = null;
+
+			ArrayList<byte[]> data = BlockCompressor.decode(buffer);
+
+			records.ensureCapacity(data.size());
+
+			for(int i = 0; i < data.size(); i++) {
+				T tuple = tupleMaker.get();
+				tuple.load(new String(data.get(i)));
+
+				records.add(new Record<T>(blockNumber, i, tuple));
+			}
+
+			return;
+		}
+
 		buffer.rewind();
 
 		freeSize = Block.SIZE;
@@ -77,7 +142,64 @@ public class Block<T extends Tuple> implements Iterable<Record<T>> {
 		}
 	}
 
+	// Decodes only the records of the buffer that pass the raw filter; the records
+	// kept by the block itself are left untouched, so the block can be reused
+	public ArrayList<Record<T>> loadMatching(Supplier<T> tupleMaker, RawPredicate filter) {
+		ArrayList<Record<T>> matching = new ArrayList<>();
+
+		// Compressed records are tested once decompressed
+		if(BlockCompressor.isCompressed(buffer)) {
+			ArrayList<byte[]> data = BlockCompressor.decode(buffer);
+
+			for(int i = 0; i < data.size(); i++) {
+				if(filter.test(ByteBuffer.wrap(data.get(i)), 0, data.get(i).length)) {
+					T tuple = tupleMaker.get();
+					tuple.load(new String(data.get(i)));
+
+					matching.add(new Record<T>(blockNumber, i, tuple));
+				}
+			}
+
+			return matching;
+		}
+
+		int numberRecords = buffer.getInt(0);
+
+		int totalOffset = 0;
+
+		for(int i = 0; i < numberRecords; i++) {
+			int currentSize = buffer.getInt(Integer.BYTES * (i + 1));
+			totalOffset += currentSize;
+
+			int offset = Block.SIZE - totalOffset;
+
+			if(!filter.test(buffer, offset, currentSize)) {
+				continue;
+			}
+
+			byte[] data = new byte[currentSize];
+
+			buffer.position(offset);
+			buffer.get(data);
+
+			T tuple = tupleMaker.get();
+			tuple.load(new String(data));
+
+			matching.add(new Record<T>(blockNumber, i, tuple));
+		}
+
+		return matching;
+	}
+
 	public void saveBuffer() {
+		if(compressed) {
+			// Saving ends the compressor, which is rebuilt if records are added later
+			getCompressor().save(buffer);
+			compressor = null;
+
+			return;
+		}
+
 		buffer.rewind();
 
 		// 1: The number of records
@@ -130,6 +252,10 @@ public class Block<T extends Tuple> implements Iterable<Record<T>> {
 	}
 
 	public boolean canAddRecord(Record<T> record) {
+		if(compressed) {
+			return getCompressor().canAdd(record.save().getBytes());
+		}
+
 		// Account for integer describing the record size in the block header
 		return (freeSize >= (record.getSize() + Integer.BYTES));
 	}
@@ -141,6 +267,11 @@ public class Block<T extends Tuple> implements Iterable<Record<T>> {
 			record.setBlockNumber(blockNumber);
 			record.setRecordNumber(records.size() - 1);
 
+			if(compressed) {
+				getCompressor().add(record.save().getBytes());
+				return true;
+			}
+
 			// Account for integer describing the record size in the block header
 			freeSize -= (record.getSize() + Integer.BYTES);
 
@@ -160,6 +291,8 @@ public class Block<T extends Tuple> implements Iterable<Record<T>> {
 		records.set(position, record);
 
 		freeSize -= records.get(position).getSize();
+
+		compressor = null;
 	}
 
 	public boolean deleteRecord(Record<T> record) {
@@ -177,6 +310,8 @@ public class Block<T extends Tuple> implements Iterable<Record<T>> {
 
 		records.remove(position);
 
+		compressor = null;
+
 		return true;
 	}
 
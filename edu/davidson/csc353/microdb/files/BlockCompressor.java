@@ -0,0 +1,238 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.io.ByteArrayOutputStream;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Packs the records of a compressed block into one page. Each record is stored as
+// the length of the prefix it shares with the previous record, and the rest of its
+// bytes (records of a sorted run share long prefixes when the key leads the tuple);
+// the result is deflated as records are added.
+//
+// Page layout: a negative marker (uncompressed pages start with their number of
+// records), the number of records, the length of the deflated data, and the data.
+class BlockCompressor {
+	static final int MARKER = -1;
+
+	static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+	// Worst-case growth of the deflated data over its input, including the stream
+	// header and trailer; a little more is added per KiB of input
+	private static final int SLACK = 32;
+
+	private Deflater deflater;
+	private ByteArrayOutputStream output;
+
+	private byte[] chunk;
+
+	private byte[] lastData;
+	private int numberRecords;
+
+	// Input not yet known to be in the output: its compressed size is only bounded
+	private int pendingBytes;
+
+	BlockCompressor() {
+		this.deflater = new Deflater(Deflater.BEST_SPEED);
+		this.output = new ByteArrayOutputStream();
+
+		this.chunk = new byte[256];
+
+		this.lastData = new byte[0];
+		this.numberRecords = 0;
+
+		this.pendingBytes = 0;
+	}
+
+	boolean canAdd(byte[] data) {
+		int size = encode(data).length;
+
+		if(fits(size)) {
+			return true;
+		}
+
+		if(pendingBytes == 0) {
+			return false;
+		}
+
+		// The bound is loose: flushing gives the exact size so far
+		drain(Deflater.SYNC_FLUSH);
+		pendingBytes = 0;
+
+		return fits(size);
+	}
+
+	private boolean fits(int size) {
+		int pending = pendingBytes + size;
+
+		return (HEADER_SIZE + output.size() + pending + SLACK + (pending >> 10) <= Block.SIZE);
+	}
+
+	void add(byte[] data) {
+		byte[] encoded = encode(data);
+
+		deflater.setInput(encoded);
+		drain(Deflater.NO_FLUSH);
+
+		pendingBytes += encoded.length;
+
+		lastData = data;
+		numberRecords++;
+	}
+
+	// Finishes the deflated data and writes the page; the compressor cannot be used afterwards
+	void save(ByteBuffer buffer) {
+		deflater.finish();
+
+		while(!deflater.finished()) {
+			int length = deflater.deflate(chunk);
+
+			output.write(chunk, 0, length);
+		}
+
+		deflater.end();
+
+		buffer.rewind();
+
+		buffer.putInt(MARKER);
+		buffer.putInt(numberRecords);
+		buffer.putInt(output.size());
+		buffer.put(output.toByteArray());
+	}
+
+	private void drain(int flush) {
+		if(flush == Deflater.NO_FLUSH) {
+			while(!deflater.needsInput()) {
+				int length = deflater.deflate(chunk, 0, chunk.length, flush);
+
+				output.write(chunk, 0, length);
+			}
+
+			return;
+		}
+
+		int length;
+
+		do {
+			length = deflater.deflate(chunk, 0, chunk.length, flush);
+
+			output.write(chunk, 0, length);
+		} while(length == chunk.length);
+	}
+
+	private byte[] encode(byte[] data) {
+		int shared = 0;
+
+		while(shared < data.length && shared < lastData.length && data[shared] == lastData[shared]) {
+			shared++;
+		}
+
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream(data.length - shared + 4);
+
+		writeVarint(encoded, shared);
+		writeVarint(encoded, data.length - shared);
+
+		encoded.write(data, shared, data.length - shared);
+
+		return encoded.toByteArray();
+	}
+
+	static boolean isCompressed(ByteBuffer buffer) {
+		return (buffer.getInt(0) == MARKER);
+	}
+
+	// The bytes of each record of a compressed page
+	static ArrayList<byte[]> decode(ByteBuffer buffer) {
+		int numberRecords = buffer.getInt(Integer.BYTES);
+		int length = buffer.getInt(2 * Integer.BYTES);
+
+		byte[] compressed = new byte[length];
+
+		buffer.position(HEADER_SIZE);
+		buffer.get(compressed);
+
+		Inflater inflater = new Inflater();
+		ByteArrayOutputStream raw = new ByteArrayOutputStream(Block.SIZE * 2);
+
+		byte[] chunk = new byte[256];
+
+		try {
+			inflater.setInput(compressed);
+
+			while(!inflater.finished()) {
+				int inflated = inflater.inflate(chunk);
+
+				if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new RuntimeException("Error decompressing block: data is truncated");
+				}
+
+				raw.write(chunk, 0, inflated);
+			}
+		}
+		catch(DataFormatException exception) {
+			throw new RuntimeException("Error decompressing block", exception);
+		}
+		finally {
+			inflater.end();
+		}
+
+		ByteBuffer input = ByteBuffer.wrap(raw.toByteArray());
+
+		ArrayList<byte[]> records = new ArrayList<>(numberRecords);
+
+		byte[] previous = new byte[0];
+
+		for(int i = 0; i < numberRecords; i++) {
+			int shared = readVarint(input);
+			int rest = readVarint(input);
+
+			byte[] data = Arrays.copyOf(previous, shared + rest);
+
+			input.get(data, shared, rest);
+
+			records.add(data);
+			previous = data;
+		}
+
+		return records;
+	}
+
+	// Seven bits per byte, lowest first; the high bit marks that more bytes follow
+	private static void writeVarint(ByteArrayOutputStream output, int value) {
+		while((value & ~0x7F) != 0) {
+			output.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		output.write(value);
+	}
+
+	private static int readVarint(ByteBuffer input) {
+		int value = 0;
+		int shift = 0;
+
+		while(true) {
+			int current = input.get();
+
+			value |= (current & 0x7F) << shift;
+
+			if((current & 0x80) == 0) {
+				return value;
+			}
+
+			shift += 7;
+		}
+	}
+}
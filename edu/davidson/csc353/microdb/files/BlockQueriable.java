@@ -0,0 +1,36 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Relations whose records are stored in blocks of their own. Unlike other queriables
+// (e.g., a ResultSet, read once through its iterator), they can be read any number of
+// times, and split into block ranges scanned by concurrent readers.
+public interface BlockQueriable<T extends Tuple> extends Queriable<T> {
+	// Returns a view that can be read concurrently with other readers
+	public BlockQueriable<T> openReader();
+
+	// The block streams are SIZED and split evenly on block boundaries;
+	// the record streams flatten them, so parallel splitting is still per block
+	public default Stream<Block<T>> blockStream() {
+		return StreamSupport.stream(new BlockSpliterator<T>(openReader()), false);
+	}
+
+	public default Stream<Block<T>> parallelBlockStream() {
+		return StreamSupport.stream(new BlockSpliterator<T>(openReader()), true);
+	}
+
+	public default Stream<Record<T>> stream() {
+		return blockStream().flatMap(block -> block.getRecords().stream());
+	}
+
+	public default Stream<Record<T>> parallelStream() {
+		return parallelBlockStream().flatMap(block -> block.getRecords().stream());
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.util.Spliterator;
+
+import java.util.function.Consumer;
+
+public class BlockSpliterator<T extends Tuple> implements Spliterator<Block<T>> {
+	private BlockQueriable<T> reader;
+
+	private int low;
+	private int high;
+
+	public BlockSpliterator(BlockQueriable<T> reader) {
+		this(reader, 0, reader.getNumberBlocks());
+	}
+
+	public BlockSpliterator(BlockQueriable<T> reader, int low, int high) {
+		this.reader = reader;
+
+		this.low = low;
+		this.high = high;
+	}
+
+	public boolean tryAdvance(Consumer<? super Block<T>> action) {
+		if(low >= high) {
+			return false;
+		}
+
+		action.accept(reader.get(low));
+		low++;
+
+		return true;
+	}
+
+	public void forEachRemaining(Consumer<? super Block<T>> action) {
+		for(; low < high; low++) {
+			action.accept(reader.get(low));
+		}
+	}
+
+	// Splits the remaining blocks in half, handing out the first half
+	public Spliterator<Block<T>> trySplit() {
+		int middle = (low + high) >>> 1;
+
+		if(middle <= low) {
+			return null;
+		}
+
+		BlockSpliterator<T> prefix = new BlockSpliterator<T>(reader, low, middle);
+		low = middle;
+
+		return prefix;
+	}
+
+	public long estimateSize() {
+		return high - low;
+	}
+
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+	}
+}
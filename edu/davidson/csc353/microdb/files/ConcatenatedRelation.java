@@ -0,0 +1,157 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import java.util.function.Function;
+
+// The records of several relations, one after the other, without copying them.
+// Blocks are numbered across the parts (the first block of a part follows the
+// last block of the previous one); blocks and records read through the
+// concatenation carry these numbers, so they can be used to get them back.
+class ConcatenatedRelation<T extends Tuple> implements BlockQueriable<T> {
+	private List<? extends BlockQueriable<T>> parts;
+
+	ConcatenatedRelation(List<? extends BlockQueriable<T>> parts) {
+		this.parts = parts;
+	}
+
+	public int getNumberBlocks() {
+		int numberBlocks = 0;
+
+		for(Queriable<T> part: parts) {
+			numberBlocks += part.getNumberBlocks();
+		}
+
+		return numberBlocks;
+	}
+
+	// Index of the part holding the block
+	private int locate(int blockNumber) {
+		for(int i = 0; i < parts.size(); i++) {
+			int numberBlocks = parts.get(i).getNumberBlocks();
+
+			if(blockNumber < numberBlocks) {
+				return i;
+			}
+
+			blockNumber -= numberBlocks;
+		}
+
+		throw new RuntimeException("Error accessing block " + blockNumber + " past the end of the relation");
+	}
+
+	// Number of the first block of a part
+	private int offset(int part) {
+		int offset = 0;
+
+		for(int i = 0; i < part; i++) {
+			offset += parts.get(i).getNumberBlocks();
+		}
+
+		return offset;
+	}
+
+	public Block<T> get(int blockNumber) {
+		int part = locate(blockNumber);
+
+		return parts.get(part).get(blockNumber - offset(part)).renumber(blockNumber);
+	}
+
+	public Record<T> get(int blockNumber, int recordNumber) {
+		int part = locate(blockNumber);
+
+		Record<T> record = parts.get(part).get(blockNumber - offset(part), recordNumber);
+
+		return new Record<T>(blockNumber, recordNumber, record.getTuple());
+	}
+
+	public Iterator<Record<T>> iterator() {
+		return new PartIterator(0, part -> part.iterator());
+	}
+
+	public Iterator<Record<T>> iterator(int blockNumber, int recordNumber) {
+		if(blockNumber >= getNumberBlocks()) {
+			return new PartIterator(parts.size(), part -> part.iterator());
+		}
+
+		int first = locate(blockNumber);
+		int localNumber = blockNumber - offset(first);
+
+		// Only the first part is started in the middle
+		return new PartIterator(first, part -> (part == parts.get(first)) ? part.iterator(localNumber, recordNumber) : part.iterator());
+	}
+
+	public Iterator<Record<T>> iterator(RawPredicate filter) {
+		return new PartIterator(0, part -> part.iterator(filter));
+	}
+
+	public long getVersion() {
+		long version = 0;
+
+		for(Queriable<T> part: parts) {
+			version += part.getVersion();
+		}
+
+		return version;
+	}
+
+	public BlockQueriable<T> openReader() {
+		ArrayList<BlockQueriable<T>> readers = new ArrayList<>(parts.size());
+
+		for(BlockQueriable<T> part: parts) {
+			readers.add(part.openReader());
+		}
+
+		return new ConcatenatedRelation<T>(readers);
+	}
+
+	// Reads the parts in order, renumbering their records
+	private class PartIterator implements Iterator<Record<T>> {
+		private Function<Queriable<T>, Iterator<Record<T>>> opener;
+
+		private int part;
+		private int offset;
+
+		private Iterator<Record<T>> iterator;
+
+		public PartIterator(int part, Function<Queriable<T>, Iterator<Record<T>>> opener) {
+			this.opener = opener;
+
+			this.part = part;
+			this.offset = (part < parts.size()) ? offset(part) : 0;
+
+			this.iterator = (part < parts.size()) ? opener.apply(parts.get(part)) : null;
+		}
+
+		public boolean hasNext() {
+			while(iterator != null && !iterator.hasNext()) {
+				offset += parts.get(part).getNumberBlocks();
+				part++;
+
+				iterator = (part < parts.size()) ? opener.apply(parts.get(part)) : null;
+			}
+
+			return (iterator != null);
+		}
+
+		public Record<T> next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			Record<T> record = iterator.next();
+
+			return new Record<T>(offset + record.getBlockNumber(), record.getRecordNumber(), record.getTuple());
+		}
+	}
+}
@@ -12,9 +12,11 @@ import java.util.Iterator;
 
 import java.util.NoSuchElementException;
 
-public class MemoryRelation<T extends Tuple> implements Queriable<T> {
+public class MemoryRelation<T extends Tuple> implements WritableQueriable<T>, BlockQueriable<T> {
 	private ArrayList<Block<T>> blocks;
 
+	private long version;
+
 	public MemoryRelation() {
 		this.blocks = new ArrayList<Block<T>>();
 	}
@@ -46,6 +48,12 @@ public class MemoryRelation<T extends Tuple> implements Queriable<T> {
 		}	
 		
 		lastBlock.addRecord(record);
+
+		version++;
+	}
+
+	public long getVersion() {
+		return version;
 	}
 
 	public int getNumberBlocks() {
@@ -67,6 +75,11 @@ public class MemoryRelation<T extends Tuple> implements Queriable<T> {
 	public Iterator<Record<T>> iterator(int blockNumber, int recordNumber) {
 		return new RecordIterator(this, blockNumber, recordNumber);
 	}
+
+	// Blocks are only read from the list, so all readers can share it
+	public BlockQueriable<T> openReader() {
+		return this;
+	}
 	
 	private class RecordIterator implements Iterator<Record<T>> {
 		private MemoryRelation<T> relation;
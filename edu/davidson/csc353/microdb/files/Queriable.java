@@ -6,7 +6,14 @@
  */
 package edu.davidson.csc353.microdb.files;
 
+import java.nio.ByteBuffer;
+
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface Queriable<T extends Tuple> extends Iterable<Record<T>>{
 	public int getNumberBlocks();
@@ -16,4 +23,27 @@ public interface Queriable<T extends Tuple> extends Iterable<Record<T>>{
 
 	public Iterator<Record<T>> iterator();
 	public Iterator<Record<T>> iterator(int blockNumber, int recordNumber);
+
+	// Records failing the raw filter are skipped. By default, each record is
+	// encoded again to be tested; relations stored on disk test their blocks directly.
+	public default Iterator<Record<T>> iterator(RawPredicate filter) {
+		return StreamSupport.stream(spliterator(), false).filter(record -> {
+			byte[] data = record.save().getBytes();
+
+			return filter.test(ByteBuffer.wrap(data), 0, data.length);
+		}).iterator();
+	}
+
+	// Changes whenever records are added or removed
+	public long getVersion();
+
+	// By default, the records are streamed from the iterator (of unknown size, so parallel
+	// streams split it in batches); relations stored in blocks split their streams per block
+	public default Stream<Record<T>> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), false);
+	}
+
+	public default Stream<Record<T>> parallelStream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), true);
+	}
 }
@@ -0,0 +1,18 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.nio.ByteBuffer;
+
+// Tests an encoded record (length bytes starting at offset) without decoding it into a tuple
+public interface RawPredicate {
+	public boolean test(ByteBuffer buffer, int offset, int length);
+
+	public default RawPredicate and(RawPredicate other) {
+		return (buffer, offset, length) -> test(buffer, offset, length) && other.test(buffer, offset, length);
+	}
+}
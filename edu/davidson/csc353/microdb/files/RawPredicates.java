@@ -0,0 +1,132 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.nio.ByteBuffer;
+
+import java.util.function.Predicate;
+
+public class RawPredicates {
+	public static final char SEPARATOR = ',';
+
+	public static RawPredicate fieldEquals(int field, String value) {
+		return fieldEquals(field, value, SEPARATOR);
+	}
+
+	public static RawPredicate fieldEquals(int field, String value, char separator) {
+		byte[] expected = value.getBytes();
+
+		return (buffer, offset, length) -> {
+			int start = fieldStart(buffer, offset, length, field, separator);
+
+			if(start < 0) {
+				return false;
+			}
+
+			int end = fieldEnd(buffer, start, offset + length, separator);
+
+			if(end - start != expected.length) {
+				return false;
+			}
+
+			for(int i = 0; i < expected.length; i++) {
+				if(buffer.get(start + i) != expected[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		};
+	}
+
+	// Both bounds are inclusive
+	public static RawPredicate fieldBetween(int field, long low, long high) {
+		return fieldBetween(field, low, high, SEPARATOR);
+	}
+
+	public static RawPredicate fieldBetween(int field, long low, long high, char separator) {
+		return (buffer, offset, length) -> {
+			int start = fieldStart(buffer, offset, length, field, separator);
+
+			if(start < 0) {
+				return false;
+			}
+
+			int end = fieldEnd(buffer, start, offset + length, separator);
+
+			boolean negative = (start < end && buffer.get(start) == '-');
+
+			if(negative) {
+				start++;
+			}
+
+			if(start == end) {
+				return false;
+			}
+
+			long value = 0;
+
+			for(int i = start; i < end; i++) {
+				byte digit = buffer.get(i);
+
+				if(digit < '0' || digit > '9') {
+					return false;
+				}
+
+				value = value * 10 + (digit - '0');
+			}
+
+			if(negative) {
+				value = -value;
+			}
+
+			return (value >= low && value <= high);
+		};
+	}
+
+	// Fallback for conditions that need the whole encoded record; still avoids creating the tuple
+	public static RawPredicate decoded(Predicate<String> predicate) {
+		return (buffer, offset, length) -> {
+			byte[] data = new byte[length];
+
+			for(int i = 0; i < length; i++) {
+				data[i] = buffer.get(offset + i);
+			}
+
+			return predicate.test(new String(data));
+		};
+	}
+
+	private static int fieldStart(ByteBuffer buffer, int offset, int length, int field, char separator) {
+		int position = offset;
+		int end = offset + length;
+
+		for(int current = 0; current < field; current++) {
+			while(position < end && buffer.get(position) != separator) {
+				position++;
+			}
+
+			if(position == end) {
+				return -1;
+			}
+
+			position++;
+		}
+
+		return position;
+	}
+
+	private static int fieldEnd(ByteBuffer buffer, int start, int end, char separator) {
+		int position = start;
+
+		while(position < end && buffer.get(position) != separator) {
+			position++;
+		}
+
+		return position;
+	}
+}
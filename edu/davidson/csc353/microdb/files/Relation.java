@@ -26,10 +26,19 @@ import static java.nio.file.StandardCopyOption.*;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import java.util.function.Supplier;
 import java.util.function.Function;
 
-public class Relation<T extends Tuple> implements Queriable<T> {
+public class Relation<T extends Tuple> implements WritableQueriable<T>, BlockQueriable<T> {
+	// Shared by every Relation object opened on the same file, and dropped when the
+	// file is deleted. Versions come from a single counter, so a relation deleted and
+	// created again never repeats one (a deleted relation has version 0).
+	private static ConcurrentHashMap<String, Long> versions = new ConcurrentHashMap<>();
+	private static AtomicLong versionCounter = new AtomicLong();
+
 	private String relationName;
 	private Supplier<T> tupleMaker;
 
@@ -39,12 +48,16 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 	private BlockManager<T> blockManager;
 	private int numberBlocks;
 
+	private boolean compressed;
+
 	public Relation(String relationName, Supplier<T> tupleMaker) {
 		this.relationName = relationName;
 		this.tupleMaker = tupleMaker;
 
 		blockManager = new BlockManager<T>(this);
 
+		versions.putIfAbsent(relationName, versionCounter.incrementAndGet());
+
 		try {
 			relationFile = new RandomAccessFile(relationName + ".db", "rws");
 			relationChannel = relationFile.getChannel();
@@ -59,8 +72,14 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 		}
 	}
 
+	// If true, blocks created from now on are written compressed. Blocks
+	// of both formats are always read, so the setting is not persisted.
+	public void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+	}
+
 	public Block<T> createBlock() {
-		Block<T> block = new Block<T>(numberBlocks);
+		Block<T> block = new Block<T>(numberBlocks, compressed);
 
 		numberBlocks++;
 
@@ -81,6 +100,8 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 		blockManager.put(blockNumber, lastBlock);
 
 		numberBlocks--;
+
+		bumpVersion(relationName);
 	}
 
 	private Block<T> readBlock(int blockNumber) {
@@ -143,6 +164,8 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 		}	
 
 		lastBlock.addRecord(record);
+
+		bumpVersion(relationName);
 	}
 
 	public void load() {
@@ -165,6 +188,8 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 		catch(IOException exception) {
 			throw new RuntimeException("Error removing database file " +relationName + ".db");
 		}
+
+		bumpVersion(relationName);
 	}
 
 	public void close() {
@@ -185,6 +210,9 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 			//throw new RuntimeException("Error removing database file " +relationName + ".db");
 			exception.printStackTrace();
 		}		
+
+		versions.remove(relationName);
+		bumpVersion(newRelationName);
 	}
 
 	public void delete() {
@@ -196,6 +224,20 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 			//throw new RuntimeException("Error removing database file " +relationName + ".db");
 			exception.printStackTrace();
 		}		
+
+		versions.remove(relationName);
+	}
+
+	public String getName() {
+		return relationName;
+	}
+
+	public long getVersion() {
+		return versions.getOrDefault(relationName, 0L);
+	}
+
+	private static void bumpVersion(String relationName) {
+		versions.put(relationName, versionCounter.incrementAndGet());
 	}
 
 	public int getNumberBlocks() {
@@ -218,18 +260,33 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 		return new RecordIterator(this, blockNumber, recordNumber);
 	}
 
+	// Blocks are read into a single reusable buffer and never reach the
+	// block manager, since they only hold the records that passed the filter
+	public Iterator<Record<T>> iterator(RawPredicate filter) {
+		save();
+
+		return new FilteredRecordIterator(filter);
+	}
+
+	// Blocks still in the block manager are flushed first, so readers see them on disk
+	public BlockQueriable<T> openReader() {
+		save();
+
+		return new RelationReader(numberBlocks);
+	}
+
 	private class RecordIterator implements Iterator<Record<T>> {
-		private Relation<T> relation;
+		private Queriable<T> relation;
 		private int blockNumber;
 
 		private Iterator<Record<T>> recordIterator;
 
-		public RecordIterator(Relation<T> relation, int blockNumber, int recordNumber) {
+		public RecordIterator(Queriable<T> relation, int blockNumber, int recordNumber) {
 			this.relation = relation;
 			this.blockNumber = blockNumber;
 
-			if(blockNumber < relation.numberBlocks) {
-				recordIterator = relation.readBlock(blockNumber).iterator(recordNumber);	
+			if(blockNumber < relation.getNumberBlocks()) {
+				recordIterator = relation.get(blockNumber).iterator(recordNumber);	
 			}
 		}
 
@@ -244,8 +301,8 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 				if(!recordIterator.hasNext()) {
 					blockNumber++;
 
-					if(blockNumber < relation.numberBlocks) {
-						recordIterator = relation.readBlock(blockNumber).iterator();	
+					if(blockNumber < relation.getNumberBlocks()) {
+						recordIterator = relation.get(blockNumber).iterator();	
 					}
 					else {
 						recordIterator = null;
@@ -263,6 +320,122 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 		}
 	}
 
+	private class FilteredRecordIterator implements Iterator<Record<T>> {
+		private RawPredicate filter;
+
+		private Block<T> block;
+		private int blockNumber;
+
+		private Iterator<Record<T>> recordIterator;
+
+		public FilteredRecordIterator(RawPredicate filter) {
+			this.filter = filter;
+
+			this.block = new Block<T>(0);
+			this.blockNumber = 0;
+
+			advance();
+		}
+
+		private void advance() {
+			recordIterator = null;
+
+			while(blockNumber < numberBlocks) {
+				block.setBlockNumber(blockNumber);
+
+				try {
+					ByteBuffer buffer = block.getBuffer();
+
+					buffer.clear();
+					relationChannel.read(buffer, blockNumber * Block.SIZE);
+				}
+				catch (IOException e) {
+					throw new RuntimeException("Error accessing " + blockNumber + " on file " + relationName);
+				}
+
+				blockNumber++;
+
+				Iterator<Record<T>> matching = block.loadMatching(tupleMaker, filter).iterator();
+
+				if(matching.hasNext()) {
+					recordIterator = matching;
+					return;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return (recordIterator != null && recordIterator.hasNext());
+		}
+
+		public Record<T> next() {
+			if(this.hasNext()) {
+				Record<T> next = recordIterator.next();
+
+				if(!recordIterator.hasNext()) {
+					advance();
+				}
+
+				return next;
+			}
+
+			throw new NoSuchElementException();
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// Reads blocks straight from the channel, bypassing the block manager,
+	// so that several readers can scan the relation from different threads
+	private class RelationReader implements BlockQueriable<T> {
+		private int numberBlocks;
+
+		public RelationReader(int numberBlocks) {
+			this.numberBlocks = numberBlocks;
+		}
+
+		public int getNumberBlocks() {
+			return numberBlocks;
+		}
+
+		public Block<T> get(int blockNumber) {
+			Block<T> block = new Block<T>(blockNumber);
+
+			try {
+				relationChannel.read(block.getBuffer(), blockNumber * Block.SIZE);
+
+				block.loadBuffer(tupleMaker);
+			}
+			catch (IOException e) {
+				throw new RuntimeException("Error accessing " + blockNumber + " on file " + relationName);
+			}
+
+			return block;
+		}
+
+		public Record<T> get(int blockNumber, int recordNumber) {
+			return get(blockNumber).getRecord(recordNumber);
+		}
+
+		public Iterator<Record<T>> iterator() {
+			return new RecordIterator(this, 0, 0);
+		}
+
+		public Iterator<Record<T>> iterator(int blockNumber, int recordNumber) {
+			return new RecordIterator(this, blockNumber, recordNumber);
+		}
+
+		public BlockQueriable<T> openReader() {
+			return this;
+		}
+
+		public long getVersion() {
+			return Relation.this.getVersion();
+		}
+	}
+
 	public void importFromFile(String importFilename, Function<String, String> convertLine) {
 		try {
 			relationChannel.truncate(0);
@@ -272,6 +445,8 @@ public class Relation<T extends Tuple> implements Queriable<T> {
 			throw new RuntimeException("Error erasing database file " +relationName + ".db");
 		}
 
+		bumpVersion(relationName);
+
 		BufferedReader reader = null;
 
 		try {
@@ -0,0 +1,220 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.function.Supplier;
+
+// Intermediate result obtained from the TemporarySpace. Records are kept in a
+// MemoryRelation until the memory budget runs out; then they are moved to a
+// Relation on disk. Closing the relation frees its memory and deletes its file.
+//
+// A temporary relation can also be a concatenation of others (see TemporarySpace):
+// then records are appended to the last part, and closing it closes all of them.
+public class TemporaryRelation<T extends Tuple> implements WritableQueriable<T>, BlockQueriable<T>, AutoCloseable {
+	private String name;
+	private Supplier<T> tupleMaker;
+
+	private MemoryRelation<T> memoryRelation;
+	private Relation<T> diskRelation;
+
+	private List<TemporaryRelation<T>> parts;
+	private ConcatenatedRelation<T> concatenation;
+
+	private boolean compressed;
+
+	private long reservedBytes;
+	private long version;
+
+	private boolean closed;
+
+	TemporaryRelation(String name, Supplier<T> tupleMaker) {
+		this.name = name;
+		this.tupleMaker = tupleMaker;
+
+		this.memoryRelation = new MemoryRelation<T>();
+		this.diskRelation = null;
+
+		this.parts = null;
+		this.concatenation = null;
+
+		this.compressed = false;
+
+		this.reservedBytes = 0;
+		this.version = 0;
+
+		this.closed = false;
+	}
+
+	TemporaryRelation(String name, Supplier<T> tupleMaker, List<TemporaryRelation<T>> parts) {
+		this(name, tupleMaker);
+
+		this.memoryRelation = null;
+
+		this.parts = parts;
+		this.concatenation = new ConcatenatedRelation<T>(parts);
+	}
+
+	public void appendRecord(Record<T> record) {
+		if(closed) {
+			throw new RuntimeException("Error accessing closed temporary relation " + name);
+		}
+
+		version++;
+
+		if(parts != null) {
+			parts.get(parts.size() - 1).appendRecord(record);
+			return;
+		}
+
+		// Copied, so the block and record numbers of the source record are left alone
+		if(diskRelation != null) {
+			diskRelation.appendRecord(new Record<T>(record.getTuple()));
+			return;
+		}
+
+		int numberBlocks = memoryRelation.getNumberBlocks();
+
+		memoryRelation.appendRecord(new Record<T>(record.getTuple()));
+
+		if(memoryRelation.getNumberBlocks() > numberBlocks) {
+			if(TemporarySpace.reserve(Block.SIZE)) {
+				reservedBytes += Block.SIZE;
+			}
+			else {
+				spill();
+			}
+		}
+	}
+
+	// Only blocks on disk are compressed: those in memory are never encoded
+	public void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+
+		if(parts != null) {
+			for(TemporaryRelation<T> part: parts) {
+				part.setCompressed(compressed);
+			}
+		}
+
+		if(diskRelation != null) {
+			diskRelation.setCompressed(compressed);
+		}
+	}
+
+	private void spill() {
+		diskRelation = new Relation<T>(name, tupleMaker);
+		diskRelation.clear();
+		diskRelation.setCompressed(compressed);
+
+		for(Record<T> record: memoryRelation) {
+			diskRelation.appendRecord(new Record<T>(record.getTuple()));
+		}
+
+		memoryRelation = null;
+
+		TemporarySpace.release(reservedBytes);
+		reservedBytes = 0;
+	}
+
+	public boolean isSpilled() {
+		if(parts != null) {
+			for(TemporaryRelation<T> part: parts) {
+				if(part.isSpilled()) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		return (diskRelation != null);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void close() {
+		if(closed) {
+			return;
+		}
+
+		closed = true;
+
+		if(parts != null) {
+			for(TemporaryRelation<T> part: parts) {
+				part.close();
+			}
+
+			parts = null;
+			concatenation = null;
+		}
+
+		if(diskRelation != null) {
+			diskRelation.delete();
+			diskRelation = null;
+		}
+
+		memoryRelation = null;
+
+		TemporarySpace.release(reservedBytes);
+		reservedBytes = 0;
+
+		TemporarySpace.closed(this);
+	}
+
+	private BlockQueriable<T> current() {
+		if(closed) {
+			throw new RuntimeException("Error accessing closed temporary relation " + name);
+		}
+
+		if(concatenation != null) {
+			return concatenation;
+		}
+
+		if(diskRelation != null) {
+			return diskRelation;
+		}
+
+		return memoryRelation;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public int getNumberBlocks() {
+		return current().getNumberBlocks();
+	}
+
+	public Block<T> get(int blockNumber) {
+		return current().get(blockNumber);
+	}
+
+	public Record<T> get(int blockNumber, int recordNumber) {
+		return current().get(blockNumber, recordNumber);
+	}
+
+	public Iterator<Record<T>> iterator() {
+		return current().iterator();
+	}
+
+	public Iterator<Record<T>> iterator(int blockNumber, int recordNumber) {
+		return current().iterator(blockNumber, recordNumber);
+	}
+
+	public Iterator<Record<T>> iterator(RawPredicate filter) {
+		return current().iterator(filter);
+	}
+
+	public BlockQueriable<T> openReader() {
+		return current().openReader();
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.util.function.Supplier;
+
+// Hands out uniquely named temporary relations for intermediate results.
+// All of them share a single memory budget: a temporary relation that cannot
+// reserve memory for a new block spills to disk, and stays there until closed.
+public class TemporarySpace {
+	public static final long MEMORY_BUDGET = 1 << 20;
+
+	// Distinguishes the files of concurrent processes sharing a directory
+	private static final String PREFIX = "tmp_" + Integer.toHexString(new Random().nextInt() & 0xFFFFFF);
+
+	private static AtomicLong counter = new AtomicLong();
+
+	private static long memoryBudget = MEMORY_BUDGET;
+	private static long memoryUsed = 0;
+
+	private static Set<TemporaryRelation<?>> openRelations = ConcurrentHashMap.newKeySet();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(TemporarySpace::closeAll));
+	}
+
+	public static <T extends Tuple> TemporaryRelation<T> create(String purpose, Supplier<T> tupleMaker) {
+		String name = PREFIX + "_" + purpose + "_" + counter.getAndIncrement();
+
+		TemporaryRelation<T> relation = new TemporaryRelation<T>(name, tupleMaker);
+
+		openRelations.add(relation);
+
+		return relation;
+	}
+
+	// The records of the parts, in order, without copying them. The parts belong
+	// to the concatenation from then on: closing it closes them.
+	public static <T extends Tuple> TemporaryRelation<T> concatenate(String purpose, Supplier<T> tupleMaker, List<TemporaryRelation<T>> parts) {
+		String name = PREFIX + "_" + purpose + "_" + counter.getAndIncrement();
+
+		TemporaryRelation<T> relation = new TemporaryRelation<T>(name, tupleMaker, new ArrayList<>(parts));
+
+		openRelations.add(relation);
+
+		return relation;
+	}
+
+	public static synchronized void setMemoryBudget(long memoryBudget) {
+		TemporarySpace.memoryBudget = memoryBudget;
+	}
+
+	public static synchronized long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public static synchronized long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	public static int getNumberOpen() {
+		return openRelations.size();
+	}
+
+	// Closes (and deletes) every temporary relation still open
+	public static void closeAll() {
+		for(TemporaryRelation<?> relation: new ArrayList<>(openRelations)) {
+			relation.close();
+		}
+	}
+
+	static synchronized boolean reserve(long bytes) {
+		if(memoryUsed + bytes > memoryBudget) {
+			return false;
+		}
+
+		memoryUsed += bytes;
+
+		return true;
+	}
+
+	static synchronized void release(long bytes) {
+		memoryUsed -= bytes;
+	}
+
+	static void closed(TemporaryRelation<?> relation) {
+		openRelations.remove(relation);
+	}
+}
@@ -0,0 +1,11 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.files;
+
+public interface WritableQueriable<T extends Tuple> extends Queriable<T> {
+	public void appendRecord(Record<T> record);
+}
@@ -27,8 +27,7 @@ public class SecondaryIndexMaterialized<T extends Tuple, K extends Comparable<K>
 	public SecondaryIndexMaterialized(Queriable<T> queriable, Function<T, K> keyExtractor, Function<K, String> saveKey, Function<String, K> loadKey) {
 		this.saveKey = saveKey;
 		
-		Relation<IndexEntry> indexEntries = new Relation<IndexEntry>("sec_index_entries", () -> new IndexEntry(null, 0, 0));
-		indexEntries.clear();
+		TemporaryRelation<IndexEntry> indexEntries = TemporarySpace.create("sec_index_entries", () -> new IndexEntry(null, 0, 0));
 
 		for(Record<T> record: queriable) {
 			K key = keyExtractor.apply(  record.getTuple() );
@@ -50,6 +49,8 @@ public class SecondaryIndexMaterialized<T extends Tuple, K extends Comparable<K>
 		indexEntriesSorter.setEliminateDuplicates(false);
 
 		sortedIndexEntries = indexEntriesSorter.sort();
+
+		indexEntries.close();
 		
 		indexSortedIndexEntries = new PrimaryIndexMaterialized<>(
 				sortedIndexEntries,
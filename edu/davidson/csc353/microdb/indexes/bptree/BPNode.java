@@ -184,7 +184,8 @@ public class BPNode<K extends Comparable<K>, V> {
 		}
 		// go backwards and remove them after copying
 		for (int i = SIZE - 1; i >= SPLIT_INDEX; i--) {
-			result.left.keys.remove(result.left.getKey(i));
+			result.left.keys.remove(i);
+			result.left.values.remove(i);
 		}
 
 		return result;
@@ -220,7 +221,14 @@ public class BPNode<K extends Comparable<K>, V> {
 		}
 		// go backwards and remove them after copying
 		for (int i = SIZE - 1; i >= SPLIT_INDEX; i--) {
-			result.left.keys.remove(result.left.getKey(i));
+			result.left.keys.remove(i);
+		}
+		for (int i = SIZE; i > SPLIT_INDEX; i--) {
+			result.left.children.remove(i);
+		}
+		// the moved children now hang from the right node
+		for (int childNumber : result.right.children) {
+			nodeFactory.getNode(childNumber).parent = result.right.number;
 		}
 
 		return result;
@@ -292,7 +300,8 @@ public class BPNode<K extends Comparable<K>, V> {
 		byte[] getKeyBytes = new byte[keyLength];
 		buffer.get(getKeyBytes);
 		String keyByteString = new String(getKeyBytes);
-		String[] keyParts = keyByteString.split("\\$");
+		// an empty node has no keys (split would return a single empty string)
+		String[] keyParts = keyLength == 0 ? new String[0] : keyByteString.split("\\$");
 		for (int i = 0; i < keyParts.length; i++) {
 			K key = loadKey.apply(keyParts[i]);
 			this.keys.add(key);
@@ -303,7 +312,7 @@ public class BPNode<K extends Comparable<K>, V> {
 			byte[] getValueBytes = new byte[valueLength];
 			buffer.get(getValueBytes);
 			String valueByteString = new String(getValueBytes); // should use default charset to convert into string
-			String[] valueParts = valueByteString.split("\\$");
+			String[] valueParts = valueLength == 0 ? new String[0] : valueByteString.split("\\$");
 			for (int i = 0; i < valueParts.length; i++) {
 				V value = loadValue.apply(valueParts[i]);
 				this.values.add(value);
@@ -65,7 +65,7 @@ public class BPNodeFactory<K extends Comparable<K>, V> {
 			this.loadKey = loadKey;
 			this.loadValue = loadValue;
 
-			Files.delete(Paths.get(indexName + ".db"));
+			Files.deleteIfExists(Paths.get(indexName + ".db"));
 
 			relationFile = new RandomAccessFile(indexName + ".db", "rws");
 			relationChannel = relationFile.getChannel();
@@ -140,6 +140,8 @@ public class BPNodeFactory<K extends Comparable<K>, V> {
 	private void writeNode(BPNode<K, V> node) {
 		ByteBuffer buffer = ByteBuffer.allocate(DISK_SIZE);
 		node.save(buffer);
+		// write the whole page, not what is left after the node's data
+		buffer.rewind();
 		long diskPos = node.number * DISK_SIZE;
 		try {
 			relationChannel.write(buffer, diskPos);
@@ -2,6 +2,10 @@ package edu.davidson.csc353.microdb.indexes.bptree;
 
 import java.nio.ByteBuffer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import java.util.function.Function;
 
 /**
@@ -11,6 +15,9 @@ import java.util.function.Function;
  * @param <V> type of the values associated with the keys in the B+Tree node.
  */
 public class BPTree<K extends Comparable<K>, V> {
+	// Fraction of each node filled by a bulk load, leaving room for later inserts
+	public static final double FILL_FACTOR = 0.8;
+
 	private BPNodeFactory<K, V> nodeFactory;
 
 	private int rootNumber;
@@ -23,6 +30,32 @@ public class BPTree<K extends Comparable<K>, V> {
 		rootNumber = rootNode.number;
 	}
 
+	/**
+	 * Creates a B+Tree from key-value pairs sorted by key, building it bottom-up
+	 * in a single pass: leaves are filled left to right, and each full node is
+	 * saved once and never visited again. Nodes are filled up to the fill factor.
+	 * 
+	 * @param loadKey       Converts string representations into keys.
+	 * @param loadValue     Converts string representations into values.
+	 * @param sortedEntries The key-value pairs, in non-decreasing key order.
+	 * @param fillFactor    Fraction of each node to fill, in (0, 1].
+	 */
+	public BPTree(Function<String, K> loadKey, Function<String, V> loadValue, Iterable<? extends Map.Entry<K, V>> sortedEntries, double fillFactor) {
+		this(loadKey, loadValue);
+
+		if (fillFactor <= 0 || fillFactor > 1) {
+			throw new RuntimeException("Error bulk loading B+Tree: fill factor " + fillFactor + " is not in (0, 1]");
+		}
+
+		BulkLoader loader = new BulkLoader(fillFactor);
+
+		for (Map.Entry<K, V> entry : sortedEntries) {
+			loader.add(entry.getKey(), entry.getValue());
+		}
+
+		loader.finish();
+	}
+
 	/**
 	 * Inserts the key-value pair into the B+Tree.
 	 * 
@@ -38,6 +71,8 @@ public class BPTree<K extends Comparable<K>, V> {
 		// overflow in leadnode, split
 		if (insertPlace.keys.size() == BPNode.SIZE) {
 			SplitResult<K, V> result = insertPlace.splitLeaf(nodeFactory);
+			// keep the leaf chain intact: the new right leaf takes over the old successor
+			result.right.next = insertPlace.next;
 			insertOnParent(result.left, result.dividerKey, result.right);
 			insertPlace.next = result.right.number;
 
@@ -87,13 +122,55 @@ public class BPTree<K extends Comparable<K>, V> {
 	public V get(K key) {
 		BPNode<K, V> leafToSearch = find(nodeFactory.getNode(rootNumber), key);
 		for (int i = 0; i < leafToSearch.keys.size(); i++) {
-			if (leafToSearch.getKey(i) == key) {
+			if (equal(leafToSearch.getKey(i), key)) {
 				return leafToSearch.getValue(i);
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the values associated with the keys in a range, in key order.
+	 * Follows the leaf chain from the leaf of the lower bound, and stops
+	 * reading leaves as soon as the upper bound is passed.
+	 * 
+	 * @param low           The lower bound.
+	 * @param high          The upper bound.
+	 * @param lowInclusive  True if keys equal to the lower bound are included.
+	 * @param highInclusive True if keys equal to the upper bound are included.
+	 * 
+	 * @return The values associated with the keys in the range.
+	 */
+	public List<V> getRange(K low, K high, boolean lowInclusive, boolean highInclusive) {
+		List<V> results = new ArrayList<>();
+
+		BPNode<K, V> leaf = findFirst(nodeFactory.getNode(rootNumber), low);
+
+		while (leaf != null) {
+			for (int i = 0; i < leaf.keys.size(); i++) {
+				K key = leaf.getKey(i);
+
+				if (less(key, low) || (!lowInclusive && equal(key, low))) {
+					continue;
+				}
+
+				if (more(key, high) || (!highInclusive && equal(key, high))) {
+					return results;
+				}
+
+				results.add(leaf.getValue(i));
+			}
+
+			if (leaf.next == -1) {
+				break;
+			}
+
+			leaf = nodeFactory.getNode(leaf.next);
+		}
+
+		return results;
+	}
+
 	/**
 	 * Returns the leaf node where we should look for the provided key.
 	 * 
@@ -119,6 +196,207 @@ public class BPTree<K extends Comparable<K>, V> {
 		}
 	}
 
+	/**
+	 * Returns the leftmost leaf node that may contain the provided key. Unlike
+	 * {@link #find}, it descends to the left of dividers equal to the key, so no
+	 * duplicate of the key is in a leaf before the one returned.
+	 * 
+	 * @param node The current node in the recursive search procedure.
+	 * @param key  The key being searched.
+	 * 
+	 * @return The leftmost leaf node that may contain the provided key.
+	 */
+	private BPNode<K, V> findFirst(BPNode<K, V> node, K key) {
+		if (node.isLeaf()) {
+			return node;
+		}
+
+		for (int i = 0; i < node.keys.size(); i++) {
+			if (!BPTree.more(key, node.getKey(i))) {
+				return findFirst(nodeFactory.getNode(node.getChild(i)), key);
+			}
+		}
+
+		return findFirst(nodeFactory.getNode(node.getChild(node.keys.size())), key);
+	}
+
+	/**
+	 * Builds the tree along its right edge: the rightmost node of each level is
+	 * open, and the others are complete and saved.
+	 */
+	private class BulkLoader {
+		private int leafCapacity;
+		private int internalCapacity;
+
+		// Open node of each level (level 0 holds the leaves)
+		private ArrayList<BPNode<K, V>> open;
+
+		// Number of the last saved node of each level, or -1
+		private ArrayList<Integer> previous;
+
+		private K lastKey;
+
+		/**
+		 * Constructor. The empty root becomes the first leaf.
+		 * 
+		 * @param fillFactor Fraction of each node to fill.
+		 */
+		public BulkLoader(double fillFactor) {
+			// Internal nodes keep at least three children, so one can always be lent
+			this.leafCapacity = Math.max(1, (int) Math.round(fillFactor * (BPNode.SIZE - 1)));
+			this.internalCapacity = Math.min(BPNode.SIZE, Math.max(3, (int) Math.round(fillFactor * BPNode.SIZE)));
+
+			this.open = new ArrayList<>();
+			this.previous = new ArrayList<>();
+
+			open.add(nodeFactory.getNode(rootNumber));
+			previous.add(-1);
+
+			this.lastKey = null;
+		}
+
+		/**
+		 * Appends a key-value pair to the open leaf, starting a new leaf if it is full.
+		 * 
+		 * @param key   The key, not smaller than the previous one.
+		 * @param value The value associated with the key.
+		 */
+		public void add(K key, V value) {
+			if (lastKey != null && less(key, lastKey)) {
+				throw new RuntimeException("Error bulk loading B+Tree: key " + key + " follows key " + lastKey);
+			}
+
+			lastKey = key;
+
+			BPNode<K, V> leaf = open.get(0);
+
+			if (leaf.keys.size() == leafCapacity) {
+				BPNode<K, V> nextLeaf = nodeFactory.create(true);
+
+				leaf.next = nextLeaf.number;
+				nodeFactory.save(leaf);
+
+				previous.set(0, leaf.number);
+				open.set(0, nextLeaf);
+
+				addChild(1, key, nextLeaf);
+
+				leaf = nextLeaf;
+			}
+
+			leaf.keys.add(key);
+			leaf.values.add(value);
+		}
+
+		/**
+		 * Adds a new open node of the level below to the open node of a level.
+		 * 
+		 * @param level   The level receiving the child.
+		 * @param divider The smallest key in the subtree of the child.
+		 * @param child   The child.
+		 */
+		private void addChild(int level, K divider, BPNode<K, V> child) {
+			// The level below had a single node: it and the child get a new parent
+			if (level == open.size()) {
+				BPNode<K, V> parent = nodeFactory.create(false);
+
+				BPNode<K, V> first = nodeFactory.getNode(previous.get(level - 1));
+
+				first.parent = parent.number;
+				nodeFactory.save(first);
+
+				parent.children.add(first.number);
+				parent.keys.add(divider);
+				parent.children.add(child.number);
+
+				child.parent = parent.number;
+
+				open.add(parent);
+				previous.add(-1);
+
+				return;
+			}
+
+			BPNode<K, V> parent = open.get(level);
+
+			if (parent.children.size() == internalCapacity) {
+				BPNode<K, V> sibling = nodeFactory.create(false);
+
+				nodeFactory.save(parent);
+
+				previous.set(level, parent.number);
+				open.set(level, sibling);
+
+				sibling.children.add(child.number);
+				child.parent = sibling.number;
+
+				addChild(level + 1, divider, sibling);
+
+				return;
+			}
+
+			parent.keys.add(divider);
+			parent.children.add(child.number);
+
+			child.parent = parent.number;
+		}
+
+		/**
+		 * Saves the open nodes, after giving a second child to any open internal
+		 * node that was left with one, and sets the root.
+		 */
+		public void finish() {
+			for (int level = 1; level < open.size(); level++) {
+				if (open.get(level).children.size() == 1) {
+					borrow(level);
+				}
+			}
+
+			for (BPNode<K, V> node : open) {
+				nodeFactory.save(node);
+			}
+
+			rootNumber = open.get(open.size() - 1).number;
+		}
+
+		/**
+		 * Moves the last child of the previous node of a level to the front of the open node.
+		 * 
+		 * @param level The level of the open node.
+		 */
+		private void borrow(int level) {
+			BPNode<K, V> node = open.get(level);
+			BPNode<K, V> left = nodeFactory.getNode(previous.get(level));
+
+			int moved = left.children.remove(left.children.size() - 1);
+			K movedKey = left.keys.remove(left.keys.size() - 1);
+
+			nodeFactory.save(left);
+
+			// The divider in front of the open node is the last key of the lowest
+			// ancestor where it is not in the first subtree; it becomes the moved key
+			for (int ancestor = level + 1; ancestor < open.size(); ancestor++) {
+				BPNode<K, V> upper = open.get(ancestor);
+
+				if (upper.children.size() > 1) {
+					int last = upper.keys.size() - 1;
+
+					node.keys.add(0, upper.keys.get(last));
+					upper.keys.set(last, movedKey);
+
+					break;
+				}
+			}
+
+			node.children.add(0, moved);
+
+			BPNode<K, V> movedNode = nodeFactory.getNode(moved);
+
+			movedNode.parent = node.number;
+			nodeFactory.save(movedNode);
+		}
+	}
+
 	/**
 	 * Helper method: returns true if k1 < k2.
 	 * 
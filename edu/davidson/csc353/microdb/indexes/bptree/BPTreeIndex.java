@@ -1,35 +1,80 @@
 package edu.davidson.csc353.microdb.indexes.bptree;
 
-import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.Map;
 import java.util.function.Function;
 
 import edu.davidson.csc353.microdb.files.Tuple;
 import edu.davidson.csc353.microdb.files.Record;
 import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.TemporaryRelation;
+import edu.davidson.csc353.microdb.files.TemporarySpace;
 
+import edu.davidson.csc353.microdb.indexes.IndexEntry;
 import edu.davidson.csc353.microdb.indexes.RecordLocation;
 
 import edu.davidson.csc353.microdb.indexes.SecondaryIndex;
 
+import edu.davidson.csc353.microdb.operations.ConversionIterator;
+import edu.davidson.csc353.microdb.operations.IterableWrapper;
+
+import edu.davidson.csc353.microdb.sorting.SortedIterator;
+import edu.davidson.csc353.microdb.sorting.Sorter;
+
 public class BPTreeIndex<T extends Tuple, K extends Comparable<K>> implements SecondaryIndex<T, K> {
 	BPTree<K, RecordLocation> tree = null;
 
 	public BPTreeIndex(Queriable<T> queriable, Function<T, K> keyExtractor, Function<String, K> loadKey) {
-		//TODO: - create a BPTree<K, RecordLocation> called "tree"
-		//      - make sure to pass the appropriate function to convert from a string "(x, y)" to a RecordLocation
-		//        block number x and record number y
-		//      - iterate over the queriable, and add the entries to the B+Tree
+		this(queriable, keyExtractor, loadKey, BPTree.FILL_FACTOR);
 	}
 
-	public Iterable<RecordLocation> get(K key) {
-		ArrayList<RecordLocation> results = new ArrayList<>();
+	// Bulk load: the entries are sorted by key (the Sorter just reads them back if they
+	// already are, e.g., when the relation is stored in key order), and the tree is built
+	// bottom-up from the sorted stream, instead of inserting (and splitting) one entry at a time
+	public BPTreeIndex(Queriable<T> queriable, Function<T, K> keyExtractor, Function<String, K> loadKey, double fillFactor) {
+		TemporaryRelation<IndexEntry> indexEntries = TemporarySpace.create("bptree_index_entries", () -> new IndexEntry(null, 0, 0));
+
+		for(Record<T> record: queriable) {
+			K key = keyExtractor.apply(record.getTuple());
+
+			indexEntries.appendRecord(new Record<IndexEntry>(new IndexEntry(key.toString(), record.getBlockNumber(), record.getRecordNumber())));
+		}
+
+		Sorter<IndexEntry, K> indexEntriesSorter = new Sorter<>(
+				indexEntries,
+				() -> new IndexEntry(null, 0, 0),
+				t -> loadKey.apply(t.key)
+				);
+
+		indexEntriesSorter.setEliminateDuplicates(false);
+
+		try(SortedIterator<IndexEntry> sortedIndexEntries = indexEntriesSorter.sortIterator()) {
+			Iterable<Map.Entry<K, RecordLocation>> entries = new IterableWrapper<>(new ConversionIterator<Record<IndexEntry>, Map.Entry<K, RecordLocation>>(sortedIndexEntries, e -> {
+				IndexEntry entry = e.getTuple();
 
-		RecordLocation location = tree.get(key);
+				return new AbstractMap.SimpleImmutableEntry<>(loadKey.apply(entry.key), new RecordLocation(entry.blockNumber, entry.recordNumber));
+			}));
 
-		if(location != null) {
-			results.add(location);
+			tree = new BPTree<>(loadKey, BPTreeIndex::loadLocation, entries, fillFactor);
 		}
+		finally {
+			indexEntries.close();
+		}
+	}
+
+	// Parses "(x, y)" into block number x and record number y
+	private static RecordLocation loadLocation(String input) {
+		String[] fields = input.substring(1, input.length() - 1).split(",");
+
+		return new RecordLocation(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()));
+	}
+
+	// Keys may repeat (secondary index), so a lookup is the range [key, key]
+	public Iterable<RecordLocation> get(K key) {
+		return tree.getRange(key, key, true, true);
+	}
 
-		return results;
+	public Iterable<RecordLocation> getRange(K low, K high, boolean lowInclusive, boolean highInclusive) {
+		return tree.getRange(low, high, lowInclusive, highInclusive);
 	}
 }
\ No newline at end of file
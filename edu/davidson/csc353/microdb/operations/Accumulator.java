@@ -0,0 +1,15 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+
+public interface Accumulator<T extends Tuple> {
+	public void add(T tuple);
+
+	public double getResult();
+}
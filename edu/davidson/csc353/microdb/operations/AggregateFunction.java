@@ -0,0 +1,14 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+
+public interface AggregateFunction<T extends Tuple> {
+	// One accumulator is created per group
+	public Accumulator<T> createAccumulator();
+}
@@ -0,0 +1,103 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.Set;
+import java.util.HashSet;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+
+public class Aggregates {
+	public static <T extends Tuple> AggregateFunction<T> count() {
+		return () -> new Accumulator<T>() {
+			private long count = 0;
+
+			public void add(T tuple) {
+				count++;
+			}
+
+			public double getResult() {
+				return count;
+			}
+		};
+	}
+
+	public static <T extends Tuple> AggregateFunction<T> sum(ToDoubleFunction<T> valueExtractor) {
+		return () -> new Accumulator<T>() {
+			private double sum = 0.0;
+
+			public void add(T tuple) {
+				sum += valueExtractor.applyAsDouble(tuple);
+			}
+
+			public double getResult() {
+				return sum;
+			}
+		};
+	}
+
+	public static <T extends Tuple> AggregateFunction<T> min(ToDoubleFunction<T> valueExtractor) {
+		return () -> new Accumulator<T>() {
+			private double min = Double.POSITIVE_INFINITY;
+
+			public void add(T tuple) {
+				min = Math.min(min, valueExtractor.applyAsDouble(tuple));
+			}
+
+			public double getResult() {
+				return min;
+			}
+		};
+	}
+
+	public static <T extends Tuple> AggregateFunction<T> max(ToDoubleFunction<T> valueExtractor) {
+		return () -> new Accumulator<T>() {
+			private double max = Double.NEGATIVE_INFINITY;
+
+			public void add(T tuple) {
+				max = Math.max(max, valueExtractor.applyAsDouble(tuple));
+			}
+
+			public double getResult() {
+				return max;
+			}
+		};
+	}
+
+	public static <T extends Tuple> AggregateFunction<T> avg(ToDoubleFunction<T> valueExtractor) {
+		return () -> new Accumulator<T>() {
+			private double sum = 0.0;
+			private long count = 0;
+
+			public void add(T tuple) {
+				sum += valueExtractor.applyAsDouble(tuple);
+				count++;
+			}
+
+			public double getResult() {
+				return (count == 0) ? 0.0 : sum / count;
+			}
+		};
+	}
+
+	public static <T extends Tuple, V> AggregateFunction<T> countDistinct(Function<T, V> valueExtractor) {
+		return () -> new Accumulator<T>() {
+			private Set<V> seen = new HashSet<>();
+
+			public void add(T tuple) {
+				seen.add(valueExtractor.apply(tuple));
+			}
+
+			public double getResult() {
+				return seen.size();
+			}
+		};
+	}
+}
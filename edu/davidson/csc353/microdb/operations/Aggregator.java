@@ -0,0 +1,220 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import java.util.List;
+import java.util.Map;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.TemporaryRelation;
+import edu.davidson.csc353.microdb.files.TemporarySpace;
+
+import edu.davidson.csc353.microdb.files.Queriable;
+
+import edu.davidson.csc353.microdb.utils.MemoryGrant;
+import edu.davidson.csc353.microdb.utils.MemoryManager;
+
+public class Aggregator<T extends Tuple, K extends Comparable<K>> {
+	public static final int PARTITIONS = 8;
+	public static final int MAX_DEPTH = 4;
+
+	// Memory asked from the MemoryManager for the hash table
+	public static final long MEMORY_BUDGET = 1 << 18;
+
+	private Queriable<T> queriable;
+	private Supplier<T> tupleMaker;
+	private Function<T, K> keyExtractor;
+
+	private List<AggregateFunction<T>> functions;
+
+	private int maxGroups;
+	private long memoryBudget;
+
+	public Aggregator(Queriable<T> queriable, Supplier<T> tupleMaker, Function<T, K> keyExtractor) {
+		this.queriable = queriable;
+		this.tupleMaker = tupleMaker;
+		this.keyExtractor = keyExtractor;
+
+		this.functions = new ArrayList<>();
+
+		this.maxGroups = 1024;
+		this.memoryBudget = MEMORY_BUDGET;
+	}
+
+	public void addAggregate(AggregateFunction<T> function) {
+		functions.add(function);
+	}
+
+	public void setMaxGroups(int maxGroups) {
+		this.maxGroups = maxGroups;
+	}
+
+	// Most memory, in bytes, the hash table asks for
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	// Groups are kept in a hash table of at most maxGroups entries, each accounted
+	// for with the size of its first record plus its aggregates. Once the table is
+	// full, or the MemoryManager has no more memory for it, records of new groups are
+	// spilled into temporary hash partitions, which are aggregated recursively afterwards.
+	public TemporaryRelation<GroupEntry> hashAggregate() {
+		TemporaryRelation<GroupEntry> result = TemporarySpace.create("aggregate", () -> new GroupEntry(null, null));
+
+		try(MemoryGrant grant = MemoryManager.register("aggregate", memoryBudget)) {
+			hashAggregate(queriable, result, grant, 0);
+		}
+
+		return result;
+	}
+
+	private void hashAggregate(Queriable<T> input, TemporaryRelation<GroupEntry> result, MemoryGrant grant, int depth) {
+		Map<K, List<Accumulator<T>>> groups = new HashMap<>();
+		long groupsMemory = 0;
+
+		ArrayList<TemporaryRelation<T>> partitions = null;
+
+		for(Record<T> record: input) {
+			T tuple = record.getTuple();
+			K key = keyExtractor.apply(tuple);
+
+			List<Accumulator<T>> accumulators = groups.get(key);
+
+			if(accumulators == null) {
+				long size = record.getSize() + functions.size() * Double.BYTES;
+
+				// Once spilling starts, the groups of the table are fixed
+				boolean reserved = (partitions == null && groups.size() < maxGroups && grant.reserve(size));
+
+				if(!reserved && depth < MAX_DEPTH) {
+					if(partitions == null) {
+						partitions = createPartitions(depth);
+					}
+
+					partitions.get(partition(key, depth)).appendRecord(record);
+					continue;
+				}
+
+				// Past the last level, we give up on spilling and grow the table
+				if(!reserved) {
+					grant.forceReserve(size);
+				}
+
+				groupsMemory += size;
+
+				accumulators = createAccumulators();
+				groups.put(key, accumulators);
+			}
+
+			for(Accumulator<T> accumulator: accumulators) {
+				accumulator.add(tuple);
+			}
+		}
+
+		for(Map.Entry<K, List<Accumulator<T>>> entry: groups.entrySet()) {
+			result.appendRecord(new Record<GroupEntry>(makeEntry(entry.getKey(), entry.getValue())));
+		}
+
+		grant.release(groupsMemory);
+
+		if(partitions == null) {
+			return;
+		}
+
+		for(TemporaryRelation<T> partition: partitions) {
+			if(partition.getNumberBlocks() > 0) {
+				hashAggregate(partition, result, grant, depth + 1);
+			}
+
+			partition.close();
+		}
+	}
+
+	// Requires the input to be sorted on the grouping key (e.g., by the Sorter):
+	// each group is emitted as soon as the key changes, using a single accumulator set
+	public TemporaryRelation<GroupEntry> streamAggregate() {
+		TemporaryRelation<GroupEntry> result = TemporarySpace.create("aggregate", () -> new GroupEntry(null, null));
+
+		K currentKey = null;
+		List<Accumulator<T>> accumulators = null;
+
+		for(Record<T> record: queriable) {
+			T tuple = record.getTuple();
+			K key = keyExtractor.apply(tuple);
+
+			if(currentKey == null || key.compareTo(currentKey) != 0) {
+				if(currentKey != null) {
+					result.appendRecord(new Record<GroupEntry>(makeEntry(currentKey, accumulators)));
+				}
+
+				currentKey = key;
+				accumulators = createAccumulators();
+			}
+
+			for(Accumulator<T> accumulator: accumulators) {
+				accumulator.add(tuple);
+			}
+		}
+
+		if(currentKey != null) {
+			result.appendRecord(new Record<GroupEntry>(makeEntry(currentKey, accumulators)));
+		}
+
+		return result;
+	}
+
+	private List<Accumulator<T>> createAccumulators() {
+		List<Accumulator<T>> accumulators = new ArrayList<>(functions.size());
+
+		for(AggregateFunction<T> function: functions) {
+			accumulators.add(function.createAccumulator());
+		}
+
+		return accumulators;
+	}
+
+	private GroupEntry makeEntry(K key, List<Accumulator<T>> accumulators) {
+		double[] values = new double[accumulators.size()];
+
+		for(int i = 0; i < values.length; i++) {
+			values[i] = accumulators.get(i).getResult();
+		}
+
+		return new GroupEntry(key.toString(), values);
+	}
+
+	private ArrayList<TemporaryRelation<T>> createPartitions(int depth) {
+		ArrayList<TemporaryRelation<T>> partitions = new ArrayList<>(PARTITIONS);
+
+		for(int i = 0; i < PARTITIONS; i++) {
+			partitions.add(TemporarySpace.create("aggregate" + depth, tupleMaker));
+		}
+
+		return partitions;
+	}
+
+	// Each level uses a differently seeded hash, so a partition
+	// that overflows again is split along different lines
+	private int partition(K key, int depth) {
+		int hash = key.hashCode() + depth * 0x9E3779B9;
+
+		hash ^= (hash >>> 16);
+		hash *= 0x85EBCA6B;
+		hash ^= (hash >>> 13);
+		hash *= 0xC2B2AE35;
+		hash ^= (hash >>> 16);
+
+		return Math.floorMod(hash, PARTITIONS);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.BitSet;
+import java.util.TreeMap;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Block;
+import edu.davidson.csc353.microdb.files.Record;
+
+import edu.davidson.csc353.microdb.indexes.RecordLocation;
+
+import edu.davidson.csc353.microdb.files.Queriable;
+
+// Like LocationIterator, but the locations are first gathered into one bitmap
+// per block, and the blocks are visited in ascending order, each read once.
+// Records come out in physical order, not in the order of the locations.
+public class BitmapLocationIterator<T extends Tuple> implements Iterator<Record<T>> {
+	// Above this fraction of blocks hit, a sequential scan replaces the block lookups
+	public static final double SEQUENTIAL_FRACTION = 0.5;
+
+	private Queriable<T> base;
+
+	private TreeMap<Integer, BitSet> bitmaps;
+	private Iterator<Map.Entry<Integer, BitSet>> blockIterator;
+
+	private Iterator<Record<T>> sequentialIterator;
+	private int lastBlock;
+
+	private Block<T> block;
+	private BitSet bitmap;
+	private int position;
+
+	private Record<T> next;
+
+	public BitmapLocationIterator(Queriable<T> base, Iterable<RecordLocation> records) {
+		this(base, records, SEQUENTIAL_FRACTION);
+	}
+
+	public BitmapLocationIterator(Queriable<T> base, Iterable<RecordLocation> records, double sequentialFraction) {
+		this.base = base;
+		this.bitmaps = new TreeMap<>();
+
+		for(RecordLocation location: records) {
+			BitSet blockBitmap = bitmaps.get(location.getBlockNumber());
+
+			if(blockBitmap == null) {
+				blockBitmap = new BitSet();
+				bitmaps.put(location.getBlockNumber(), blockBitmap);
+			}
+
+			blockBitmap.set(location.getRecordNumber());
+		}
+
+		if(!bitmaps.isEmpty() && bitmaps.size() > sequentialFraction * base.getNumberBlocks()) {
+			sequentialIterator = base.iterator(bitmaps.firstKey(), 0);
+			lastBlock = bitmaps.lastKey();
+		}
+		else {
+			blockIterator = bitmaps.entrySet().iterator();
+			position = -1;
+		}
+
+		advance();
+	}
+
+	public boolean isSequential() {
+		return (sequentialIterator != null);
+	}
+
+	private void advance() {
+		next = (sequentialIterator != null) ? advanceSequential() : advanceBitmap();
+	}
+
+	private Record<T> advanceSequential() {
+		while(sequentialIterator.hasNext()) {
+			Record<T> record = sequentialIterator.next();
+
+			if(record.getBlockNumber() > lastBlock) {
+				break;
+			}
+
+			BitSet blockBitmap = bitmaps.get(record.getBlockNumber());
+
+			if(blockBitmap != null && blockBitmap.get(record.getRecordNumber())) {
+				return record;
+			}
+		}
+
+		return null;
+	}
+
+	private Record<T> advanceBitmap() {
+		while(true) {
+			if(bitmap != null) {
+				position = bitmap.nextSetBit(position + 1);
+
+				if(position >= 0) {
+					return block.getRecord(position);
+				}
+			}
+
+			if(!blockIterator.hasNext()) {
+				return null;
+			}
+
+			Map.Entry<Integer, BitSet> entry = blockIterator.next();
+
+			block = base.get(entry.getKey());
+			bitmap = entry.getValue();
+			position = -1;
+		}
+	}
+
+	public boolean hasNext() {
+		return (next != null);
+	}
+
+	public Record<T> next() {
+		if(next == null) {
+			throw new NoSuchElementException();
+		}
+
+		Record<T> current = next;
+
+		advance();
+
+		return current;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class FlatteningIterator<X> implements Iterator<X> {
+	private Iterator<? extends Iterable<X>> outer;
+	private Iterator<X> inner;
+
+	public FlatteningIterator(Iterator<? extends Iterable<X>> outer) {
+		this.outer = outer;
+		this.inner = null;
+	}
+
+	public boolean hasNext() {
+		while(inner == null || !inner.hasNext()) {
+			if(!outer.hasNext()) {
+				return false;
+			}
+
+			inner = outer.next().iterator();
+		}
+
+		return true;
+	}
+
+	public X next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return inner.next();
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+
+// Saved as "length:key,value1,value2,...": the key (the toString() of any group key)
+// may contain commas, so it is read by its length rather than split.
+public class GroupEntry implements Tuple {
+	public String key;
+	public double[] values;
+
+	public GroupEntry(String key, double[] values) {
+		this.key = key;
+		this.values = values;
+	}
+
+	public void load(String input) {
+		int separator = input.indexOf(':');
+		int keyEnd = separator + 1 + Integer.parseInt(input.substring(0, separator));
+
+		key = input.substring(separator + 1, keyEnd);
+
+		String[] fields = input.substring(keyEnd).split(",");
+
+		// The first field is empty: the values start with a comma
+		values = new double[fields.length - 1];
+
+		for(int i = 1; i < fields.length; i++) {
+			values[i - 1] = Double.parseDouble(fields[i]);
+		}
+	}
+
+	public String save() {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append(key.length()).append(":").append(key);
+
+		for(double value: values) {
+			builder.append(",").append(value);
+		}
+
+		return builder.toString();
+	}
+
+	public int getSize() {
+		return save().getBytes().length;
+	}
+
+	public String toString() {
+		return "[" + save() + "]";
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+public enum Inclusivity {
+	INCLUSIVE(true, true),
+	EXCLUSIVE(false, false),
+	LOW_INCLUSIVE(true, false),
+	HIGH_INCLUSIVE(false, true);
+
+	private boolean lowInclusive;
+	private boolean highInclusive;
+
+	private Inclusivity(boolean lowInclusive, boolean highInclusive) {
+		this.lowInclusive = lowInclusive;
+		this.highInclusive = highInclusive;
+	}
+
+	public boolean includesLow() {
+		return lowInclusive;
+	}
+
+	public boolean includesHigh() {
+		return highInclusive;
+	}
+}
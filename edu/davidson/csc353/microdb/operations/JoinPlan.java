@@ -0,0 +1,63 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.function.Supplier;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Queriable;
+
+public class JoinPlan<R extends Tuple> implements Comparable<JoinPlan<R>> {
+	private JoinStrategy strategy;
+	private boolean swapped;
+
+	private double estimatedCost;
+	private double estimatedTuples;
+
+	private Supplier<Queriable<R>> executor;
+
+	public JoinPlan(JoinStrategy strategy, boolean swapped, double estimatedCost, double estimatedTuples, Supplier<Queriable<R>> executor) {
+		this.strategy = strategy;
+		this.swapped = swapped;
+
+		this.estimatedCost = estimatedCost;
+		this.estimatedTuples = estimatedTuples;
+
+		this.executor = executor;
+	}
+
+	public JoinStrategy getStrategy() {
+		return strategy;
+	}
+
+	// True if the second relation is the outer (probing) side
+	public boolean isSwapped() {
+		return swapped;
+	}
+
+	// Estimated number of block reads
+	public double getEstimatedCost() {
+		return estimatedCost;
+	}
+
+	public double getEstimatedTuples() {
+		return estimatedTuples;
+	}
+
+	public Queriable<R> execute() {
+		return executor.get();
+	}
+
+	public int compareTo(JoinPlan<R> other) {
+		return Double.compare(estimatedCost, other.estimatedCost);
+	}
+
+	public String toString() {
+		return strategy + (swapped ? " (relation 2 outer)" : " (relation 1 outer)") +
+			String.format(", cost = %.1f blocks, output = %.1f tuples", estimatedCost, estimatedTuples);
+	}
+}
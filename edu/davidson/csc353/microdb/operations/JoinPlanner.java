@@ -0,0 +1,241 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import java.util.List;
+
+import java.util.function.Function;
+import java.util.function.BiFunction;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.BlockQueriable;
+
+import edu.davidson.csc353.microdb.indexes.MemoryPrimaryIndex;
+import edu.davidson.csc353.microdb.indexes.MemorySecondaryIndex;
+
+import edu.davidson.csc353.microdb.indexes.PrimaryIndex;
+import edu.davidson.csc353.microdb.indexes.SecondaryIndex;
+
+// Picks among the Joiner algorithms for an equi-join on keyExtractor1(p) = keyExtractor2(q).
+// Costs are estimated block reads, assuming (as the BlockManager does) that a
+// rescanned relation is read again from disk. Statistics not given are computed
+// with a scan, except for result sets (which can only be read once).
+public class JoinPlanner<P extends Tuple, Q extends Tuple, R extends Tuple, K extends Comparable<K>> {
+	private Queriable<P> queriable1;
+	private Queriable<Q> queriable2;
+
+	private BiFunction<P, Q, R> tupleMaker;
+
+	private Function<P, K> keyExtractor1;
+	private Function<Q, K> keyExtractor2;
+
+	private RelationStatistics statistics1;
+	private RelationStatistics statistics2;
+
+	private PrimaryIndex<P, K> primaryIndex1;
+	private PrimaryIndex<Q, K> primaryIndex2;
+
+	private SecondaryIndex<P, K> secondaryIndex1;
+	private SecondaryIndex<Q, K> secondaryIndex2;
+
+	public JoinPlanner(Queriable<P> queriable1, Queriable<Q> queriable2, BiFunction<P, Q, R> tupleMaker, Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2) {
+		this.queriable1 = queriable1;
+		this.queriable2 = queriable2;
+
+		this.tupleMaker = tupleMaker;
+
+		this.keyExtractor1 = keyExtractor1;
+		this.keyExtractor2 = keyExtractor2;
+	}
+
+	public void setStatistics1(RelationStatistics statistics1) {
+		this.statistics1 = statistics1;
+	}
+
+	public void setStatistics2(RelationStatistics statistics2) {
+		this.statistics2 = statistics2;
+	}
+
+	public void setPrimaryIndex1(PrimaryIndex<P, K> primaryIndex1) {
+		this.primaryIndex1 = primaryIndex1;
+	}
+
+	public void setPrimaryIndex2(PrimaryIndex<Q, K> primaryIndex2) {
+		this.primaryIndex2 = primaryIndex2;
+	}
+
+	public void setSecondaryIndex1(SecondaryIndex<P, K> secondaryIndex1) {
+		this.secondaryIndex1 = secondaryIndex1;
+	}
+
+	public void setSecondaryIndex2(SecondaryIndex<Q, K> secondaryIndex2) {
+		this.secondaryIndex2 = secondaryIndex2;
+	}
+
+	public RelationStatistics getStatistics1() {
+		if(statistics1 == null) {
+			if(!(queriable1 instanceof BlockQueriable)) {
+				throw new RuntimeException("Error planning join: statistics of the first relation (readable only once) must be given with setStatistics1()");
+			}
+
+			statistics1 = RelationStatistics.compute(queriable1, keyExtractor1);
+		}
+
+		return statistics1;
+	}
+
+	public RelationStatistics getStatistics2() {
+		if(statistics2 == null) {
+			if(!(queriable2 instanceof BlockQueriable)) {
+				throw new RuntimeException("Error planning join: statistics of the second relation (readable only once) must be given with setStatistics2()");
+			}
+
+			statistics2 = RelationStatistics.compute(queriable2, keyExtractor2);
+		}
+
+		return statistics2;
+	}
+
+	// Cheapest plan first
+	public List<JoinPlan<R>> enumerate() {
+		RelationStatistics s1 = getStatistics1();
+		RelationStatistics s2 = getStatistics2();
+
+		double output = estimateOutput(s1, s2);
+
+		Joiner<P, Q, R> joiner = new Joiner<>(queriable1, queriable2, tupleMaker);
+		Joiner<Q, P, R> swapped = new Joiner<>(queriable2, queriable1, (q, p) -> tupleMaker.apply(p, q));
+
+		// Only relations stored in blocks can be the inner relation: others (e.g., a result set)
+		// are read once, and indexes over their base relation would find records they do not hold
+		boolean inner1 = queriable1 instanceof BlockQueriable;
+		boolean inner2 = queriable2 instanceof BlockQueriable;
+
+		if(!inner1 && !inner2) {
+			throw new RuntimeException("Error planning join: both relations can only be read once");
+		}
+
+		ArrayList<JoinPlan<R>> plans = new ArrayList<>();
+
+		if(inner2) {
+			plans.add(new JoinPlan<R>(JoinStrategy.LOOP_JOIN, false, loopCost(s1, s2), output,
+				() -> joiner.loopJoin((p, q) -> keyExtractor1.apply(p).equals(keyExtractor2.apply(q)))));
+		}
+
+		if(inner1) {
+			plans.add(new JoinPlan<R>(JoinStrategy.LOOP_JOIN, true, loopCost(s2, s1), output,
+				() -> swapped.loopJoin((q, p) -> keyExtractor1.apply(p).equals(keyExtractor2.apply(q)))));
+		}
+
+		if(inner2 && primaryIndex2 != null) {
+			plans.add(new JoinPlan<R>(JoinStrategy.PRIMARY_INDEX_JOIN, false, primaryIndexCost(s1, s2, primaryIndex2 instanceof MemoryPrimaryIndex), output,
+				() -> joiner.indexJoinPrimary(keyExtractor1, keyExtractor2, primaryIndex2)));
+		}
+
+		if(inner1 && primaryIndex1 != null) {
+			plans.add(new JoinPlan<R>(JoinStrategy.PRIMARY_INDEX_JOIN, true, primaryIndexCost(s2, s1, primaryIndex1 instanceof MemoryPrimaryIndex), output,
+				() -> swapped.indexJoinPrimary(keyExtractor2, keyExtractor1, primaryIndex1)));
+		}
+
+		if(inner2 && secondaryIndex2 != null) {
+			plans.add(new JoinPlan<R>(JoinStrategy.SECONDARY_INDEX_JOIN, false, secondaryIndexCost(s1, s2, secondaryIndex2 instanceof MemorySecondaryIndex), output,
+				() -> joiner.indexJoinSecondary(keyExtractor1, keyExtractor2, secondaryIndex2)));
+		}
+
+		if(inner1 && secondaryIndex1 != null) {
+			plans.add(new JoinPlan<R>(JoinStrategy.SECONDARY_INDEX_JOIN, true, secondaryIndexCost(s2, s1, secondaryIndex1 instanceof MemorySecondaryIndex), output,
+				() -> swapped.indexJoinSecondary(keyExtractor2, keyExtractor1, secondaryIndex1)));
+		}
+
+		if(inner1 && inner2 && primaryIndex1 instanceof MemoryPrimaryIndex && primaryIndex2 instanceof MemoryPrimaryIndex) {
+			MemoryPrimaryIndex<P, K> memoryIndex1 = (MemoryPrimaryIndex<P, K>) primaryIndex1;
+			MemoryPrimaryIndex<Q, K> memoryIndex2 = (MemoryPrimaryIndex<Q, K>) primaryIndex2;
+
+			plans.add(new JoinPlan<R>(JoinStrategy.PRIMARY_MERGE_JOIN, false, mergeCost(s1, s2, true), output,
+				() -> joiner.mergeJoin(memoryIndex1, memoryIndex2, keyExtractor1, keyExtractor2)));
+		}
+
+		if(inner1 && inner2 && secondaryIndex1 instanceof MemorySecondaryIndex && secondaryIndex2 instanceof MemorySecondaryIndex) {
+			MemorySecondaryIndex<P, K> memoryIndex1 = (MemorySecondaryIndex<P, K>) secondaryIndex1;
+			MemorySecondaryIndex<Q, K> memoryIndex2 = (MemorySecondaryIndex<Q, K>) secondaryIndex2;
+
+			plans.add(new JoinPlan<R>(JoinStrategy.SECONDARY_MERGE_JOIN, false, mergeCost(s1, s2, false), output,
+				() -> joiner.mergeJoin(memoryIndex1, memoryIndex2)));
+		}
+
+		Collections.sort(plans);
+
+		return plans;
+	}
+
+	public JoinPlan<R> plan() {
+		return enumerate().get(0);
+	}
+
+	public Queriable<R> join() {
+		return plan().execute();
+	}
+
+	// Classic estimate: every key of the relation with fewer keys finds a match
+	public static double estimateOutput(RelationStatistics outer, RelationStatistics inner) {
+		long keys = Math.max(outer.getDistinctKeys(), inner.getDistinctKeys());
+
+		if(keys == 0) {
+			return 0.0;
+		}
+
+		return (double) outer.getNumberTuples() * inner.getNumberTuples() / keys;
+	}
+
+	// The inner relation is scanned once per outer tuple
+	public static double loopCost(RelationStatistics outer, RelationStatistics inner) {
+		return outer.getNumberBlocks() + (double) outer.getNumberTuples() * inner.getNumberBlocks();
+	}
+
+	// Matches are clustered: each probe reads the blocks holding the matching run
+	public static double primaryIndexCost(RelationStatistics outer, RelationStatistics inner, boolean inMemory) {
+		double matchesPerProbe = estimateOutput(outer, inner) / Math.max(1, outer.getNumberTuples());
+		double blocksPerProbe = Math.max(1.0, Math.ceil(matchesPerProbe / inner.getTuplesPerBlock()));
+
+		return outer.getNumberBlocks() + outer.getNumberTuples() * (probeCost(inner, inMemory) + blocksPerProbe);
+	}
+
+	// Matches are scattered: each one is a separate block read
+	public static double secondaryIndexCost(RelationStatistics outer, RelationStatistics inner, boolean inMemory) {
+		return outer.getNumberBlocks() + outer.getNumberTuples() * probeCost(inner, inMemory) + estimateOutput(outer, inner);
+	}
+
+	// For every common key, the matches of the second index are fetched once per match of the first
+	public static double mergeCost(RelationStatistics first, RelationStatistics second, boolean clustered) {
+		double commonKeys = Math.min(first.getDistinctKeys(), second.getDistinctKeys());
+
+		double matches1 = first.getTuplesPerKey();
+		double matches2 = second.getTuplesPerKey();
+
+		if(clustered) {
+			double blocks1 = Math.max(1.0, Math.ceil(matches1 / first.getTuplesPerBlock()));
+			double blocks2 = Math.max(1.0, Math.ceil(matches2 / second.getTuplesPerBlock()));
+
+			return commonKeys * (blocks1 + matches1 * blocks2);
+		}
+
+		return commonKeys * (matches1 + matches1 * matches2);
+	}
+
+	// In-memory indexes are free to probe; others need about a binary search over the blocks
+	private static double probeCost(RelationStatistics inner, boolean inMemory) {
+		if(inMemory) {
+			return 0.0;
+		}
+
+		return Math.ceil(Math.log(Math.max(2, inner.getNumberBlocks())) / Math.log(2));
+	}
+}
@@ -0,0 +1,15 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+public enum JoinStrategy {
+	LOOP_JOIN,
+	PRIMARY_INDEX_JOIN,
+	SECONDARY_INDEX_JOIN,
+	PRIMARY_MERGE_JOIN,
+	SECONDARY_MERGE_JOIN
+}
@@ -9,14 +9,21 @@ package edu.davidson.csc353.microdb.operations;
 import java.util.Set;
 import java.util.HashSet;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import java.util.Map;
+
 import java.util.Collection;
 
 import java.util.function.Function;
 import java.util.function.BiFunction;
 
 import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Block;
 import edu.davidson.csc353.microdb.files.Record;
-import edu.davidson.csc353.microdb.files.Relation;
+import edu.davidson.csc353.microdb.files.TemporaryRelation;
+import edu.davidson.csc353.microdb.files.TemporarySpace;
 
 import edu.davidson.csc353.microdb.files.Queriable;
 import edu.davidson.csc353.microdb.indexes.IndexEntry;
@@ -24,15 +31,36 @@ import edu.davidson.csc353.microdb.indexes.MemoryPrimaryIndex;
 import edu.davidson.csc353.microdb.indexes.MemorySecondaryIndex;
 
 import edu.davidson.csc353.microdb.indexes.PrimaryIndex;
+import edu.davidson.csc353.microdb.indexes.RecordLocation;
 import edu.davidson.csc353.microdb.indexes.SecondaryIndex;
 import edu.davidson.csc353.microdb.sorting.Merger;
 
 public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
+	public static final int BATCH_SIZE = 256;
+
 	private Queriable<P> queriable1;
 	private Queriable<Q> queriable2;
 
 	private BiFunction<P, Q, R> tupleMaker;
 
+	private class Probe implements Comparable<Probe> {
+		public Record<P> record1;
+		public RecordLocation location2;
+
+		public Probe(Record<P> record1, RecordLocation location2) {
+			this.record1 = record1;
+			this.location2 = location2;
+		}
+
+		public int compareTo(Probe other) {
+			if(location2.getBlockNumber() != other.location2.getBlockNumber()) {
+				return Integer.compare(location2.getBlockNumber(), other.location2.getBlockNumber());
+			}
+
+			return Integer.compare(location2.getRecordNumber(), other.location2.getRecordNumber());
+		}
+	}
+
 	public Joiner(Queriable<P> queriable1, Queriable<Q> queriable2, BiFunction<P,Q,R> tupleMaker) {
 		this.queriable1 = queriable1;
 		this.queriable2 = queriable2;
@@ -40,9 +68,8 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		this.tupleMaker = tupleMaker;
 	}
 
-	public Queriable<R> loopJoin(BiFunction<P, Q, Boolean> predicate) {
-		Relation<R> relation = new Relation<R>("join", () -> tupleMaker.apply(null, null));
-		relation.clear();
+	public TemporaryRelation<R> loopJoin(BiFunction<P, Q, Boolean> predicate) {
+		TemporaryRelation<R> relation = TemporarySpace.create("join", () -> tupleMaker.apply(null, null));
 
 		for(Record<P> record1: queriable1) {
 			for(Record<Q> record2: queriable2) {
@@ -55,9 +82,8 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		return relation;
 	}
 
-	public <K extends Comparable<K>> Queriable<R> indexJoin(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, PrimaryIndex<Q, K> index2) {
-		Relation<R> relation = new Relation<R>("join", () -> tupleMaker.apply(null, null));
-		relation.clear();
+	public <K extends Comparable<K>> TemporaryRelation<R> indexJoinPrimary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, PrimaryIndex<Q, K> index2) {
+		TemporaryRelation<R> relation = TemporarySpace.create("join", () -> tupleMaker.apply(null, null));
 
 		for(Record<P> record1: queriable1) {
 			Selector<Q> selector2 = new Selector<Q>(queriable2);
@@ -71,9 +97,8 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		return relation;
 	}
 
-	public <K extends Comparable<K>> Queriable<R> indexJoin(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, SecondaryIndex<Q, K> index2) {
-		Relation<R> relation = new Relation<R>("join", () -> tupleMaker.apply(null, null));
-		relation.clear();
+	public <K extends Comparable<K>> TemporaryRelation<R> indexJoinSecondary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, SecondaryIndex<Q, K> index2) {
+		TemporaryRelation<R> relation = TemporarySpace.create("join", () -> tupleMaker.apply(null, null));
 
 		for(Record<P> record1: queriable1) {
 			Selector<Q> selector2 = new Selector<Q>(queriable2);
@@ -87,7 +112,7 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		return relation;
 	}
 
-	public <K extends Comparable<K>> Queriable<R> mergeJoin(MemoryPrimaryIndex<P, K> index1, MemoryPrimaryIndex<Q, K> index2, Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2) {
+	public <K extends Comparable<K>> TemporaryRelation<R> mergeJoin(MemoryPrimaryIndex<P, K> index1, MemoryPrimaryIndex<Q, K> index2, Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2) {
 		Collection<K> keys1 = index1.allKeys();
 		Collection<K> keys2 = index2.allKeys();
 
@@ -99,8 +124,7 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		intersection.addAll(keySet1);
 		intersection.retainAll(keySet2);
 
-		Relation<R> relation = new Relation<R>("join", () -> tupleMaker.apply(null, null));
-		relation.clear();
+		TemporaryRelation<R> relation = TemporarySpace.create("join", () -> tupleMaker.apply(null, null));
 
 		for(K key: intersection) {
 			Selector<P> selector1 = new Selector<P>(queriable1);
@@ -117,7 +141,7 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		return relation;
 	}
 
-	public <K extends Comparable<K>> Queriable<R> mergeJoin(MemorySecondaryIndex<P, K> index1, MemorySecondaryIndex<Q, K> index2) {
+	public <K extends Comparable<K>> TemporaryRelation<R> mergeJoin(MemorySecondaryIndex<P, K> index1, MemorySecondaryIndex<Q, K> index2) {
 		Collection<K> keys1 = index1.allKeys();
 		Collection<K> keys2 = index2.allKeys();
 
@@ -129,8 +153,7 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		intersection.addAll(keySet1);
 		intersection.retainAll(keySet2);
 
-		Relation<R> relation = new Relation<R>("join", () -> tupleMaker.apply(null, null));
-		relation.clear();
+		TemporaryRelation<R> relation = TemporarySpace.create("join", () -> tupleMaker.apply(null, null));
 
 		for(K key: intersection) {
 			Selector<P> selector1 = new Selector<P>(queriable1);
@@ -147,5 +170,183 @@ public class Joiner<P extends Tuple, Q extends Tuple, R extends Tuple> {
 		return relation;
 	}
 
+	// Batched versions of the index joins: the index is probed for a whole batch of outer
+	// records, and the probes are sorted by block, so that each inner block is fetched
+	// once per batch. Output pairs are grouped by inner block rather than by outer record.
+
+	public <K extends Comparable<K>> TemporaryRelation<R> batchIndexJoinPrimary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, PrimaryIndex<Q, K> index2) {
+		return batchIndexJoinPrimary(keyExtractor1, keyExtractor2, index2, BATCH_SIZE);
+	}
+
+	public <K extends Comparable<K>> TemporaryRelation<R> batchIndexJoinPrimary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, PrimaryIndex<Q, K> index2, int batchSize) {
+		TemporaryRelation<R> relation = TemporarySpace.create("join", () -> tupleMaker.apply(null, null));
+
+		ArrayList<Probe> probes = new ArrayList<>();
+		int batched = 0;
+
+		for(Record<P> record1: queriable1) {
+			RecordLocation location2 = index2.get(keyExtractor1.apply(record1.getTuple()));
+
+			if(location2 != null) {
+				probes.add(new Probe(record1, location2));
+			}
+
+			if(++batched == batchSize) {
+				joinPrimaryBatch(probes, keyExtractor1, keyExtractor2, relation);
+				batched = 0;
+			}
+		}
+
+		joinPrimaryBatch(probes, keyExtractor1, keyExtractor2, relation);
+
+		return relation;
+	}
+
+	public <K extends Comparable<K>> TemporaryRelation<R> batchIndexJoinSecondary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, SecondaryIndex<Q, K> index2) {
+		return batchIndexJoinSecondary(keyExtractor1, keyExtractor2, index2, BATCH_SIZE);
+	}
+
+	public <K extends Comparable<K>> TemporaryRelation<R> batchIndexJoinSecondary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, SecondaryIndex<Q, K> index2, int batchSize) {
+		TemporaryRelation<R> relation = TemporarySpace.create("join", () -> tupleMaker.apply(null, null));
+
+		ArrayList<Probe> probes = new ArrayList<>();
+		int batched = 0;
+
+		for(Record<P> record1: queriable1) {
+			for(RecordLocation location2: index2.get(keyExtractor1.apply(record1.getTuple()))) {
+				probes.add(new Probe(record1, location2));
+			}
+
+			if(++batched == batchSize) {
+				joinSecondaryBatch(probes, relation);
+				batched = 0;
+			}
+		}
+
+		joinSecondaryBatch(probes, relation);
+
+		return relation;
+	}
+
+	private void joinSecondaryBatch(ArrayList<Probe> probes, TemporaryRelation<R> relation) {
+		probes.sort(null);
+
+		Block<Q> block2 = null;
+
+		for(Probe probe: probes) {
+			if(block2 == null || block2.getBlockNumber() != probe.location2.getBlockNumber()) {
+				block2 = queriable2.get(probe.location2.getBlockNumber());
+			}
+
+			Record<Q> record2 = block2.getRecord(probe.location2.getRecordNumber());
+
+			relation.appendRecord(new Record<R>(tupleMaker.apply(probe.record1.getTuple(), record2.getTuple())));
+		}
+
+		probes.clear();
+	}
+
+	// A primary index gives the start of a run of equal keys, which may cross into the following blocks
+	private <K extends Comparable<K>> void joinPrimaryBatch(ArrayList<Probe> probes, Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, TemporaryRelation<R> relation) {
+		probes.sort(null);
+
+		Map<Integer, Block<Q>> fetched = new HashMap<>();
+
+		for(Probe probe: probes) {
+			K key = keyExtractor1.apply(probe.record1.getTuple());
+
+			int blockNumber = probe.location2.getBlockNumber();
+			int recordNumber = probe.location2.getRecordNumber();
+
+			while(blockNumber < queriable2.getNumberBlocks()) {
+				Block<Q> block2 = fetched.get(blockNumber);
+
+				if(block2 == null) {
+					block2 = queriable2.get(blockNumber);
+					fetched.put(blockNumber, block2);
+				}
+
+				if(recordNumber >= block2.getRecords().size()) {
+					blockNumber++;
+					recordNumber = 0;
+					continue;
+				}
+
+				Record<Q> record2 = block2.getRecord(recordNumber);
+
+				if(!keyExtractor2.apply(record2.getTuple()).equals(key)) {
+					break;
+				}
+
+				relation.appendRecord(new Record<R>(tupleMaker.apply(probe.record1.getTuple(), record2.getTuple())));
+				recordNumber++;
+			}
+		}
+
+		probes.clear();
+	}
+
+	// Semi-joins and anti-joins return the left records themselves (each at most once),
+	// as a result set over the first relation; probing stops on the first match
+
+	public <K extends Comparable<K>> Queriable<P> semiJoin(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2) {
+		return hashFilterJoin(keyExtractor1, keyExtractor2, true);
+	}
+
+	public <K extends Comparable<K>> Queriable<P> antiJoin(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2) {
+		return hashFilterJoin(keyExtractor1, keyExtractor2, false);
+	}
+
+	public <K extends Comparable<K>> Queriable<P> semiJoinPrimary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, PrimaryIndex<Q, K> index2) {
+		return filterJoin((record1) -> hasMatch(keyExtractor1.apply(record1.getTuple()), keyExtractor2, index2), true);
+	}
+
+	public <K extends Comparable<K>> Queriable<P> antiJoinPrimary(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, PrimaryIndex<Q, K> index2) {
+		return filterJoin((record1) -> hasMatch(keyExtractor1.apply(record1.getTuple()), keyExtractor2, index2), false);
+	}
+
+	public <K extends Comparable<K>> Queriable<P> semiJoinSecondary(Function<P, K> keyExtractor1, SecondaryIndex<Q, K> index2) {
+		return filterJoin((record1) -> index2.get(keyExtractor1.apply(record1.getTuple())).iterator().hasNext(), true);
+	}
+
+	public <K extends Comparable<K>> Queriable<P> antiJoinSecondary(Function<P, K> keyExtractor1, SecondaryIndex<Q, K> index2) {
+		return filterJoin((record1) -> index2.get(keyExtractor1.apply(record1.getTuple())).iterator().hasNext(), false);
+	}
+
+	private <K extends Comparable<K>> Queriable<P> hashFilterJoin(Function<P, K> keyExtractor1, Function<Q, K> keyExtractor2, boolean keepMatching) {
+		Set<K> keys2 = new HashSet<K>();
+
+		for(Record<Q> record2: queriable2) {
+			keys2.add(keyExtractor2.apply(record2.getTuple()));
+		}
+
+		return filterJoin((record1) -> keys2.contains(keyExtractor1.apply(record1.getTuple())), keepMatching);
+	}
+
+	private Queriable<P> filterJoin(Function<Record<P>, Boolean> hasMatch, boolean keepMatching) {
+		ArrayList<RecordLocation> locations = new ArrayList<>();
+
+		for(Record<P> record1: queriable1) {
+			if(hasMatch.apply(record1) == keepMatching) {
+				locations.add(new RecordLocation(record1.getBlockNumber(), record1.getRecordNumber()));
+			}
+		}
+
+		return new ResultSet<P>(queriable1, locations);
+	}
+
+	// A primary index points to the first key equal or bigger, so the key still has to be checked
+	private <K extends Comparable<K>> boolean hasMatch(K key, Function<Q, K> keyExtractor2, PrimaryIndex<Q, K> index2) {
+		RecordLocation location = index2.get(key);
+
+		if(location == null || location.getBlockNumber() >= queriable2.getNumberBlocks()) {
+			return false;
+		}
+
+		Record<Q> record2 = queriable2.get(location.getBlockNumber(), location.getRecordNumber());
+
+		return keyExtractor2.apply(record2.getTuple()).equals(key);
+	}
+
 	// TODO: Activity 13 
 }
@@ -0,0 +1,538 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import java.util.function.Function;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.BlockQueriable;
+
+// Equi-join of any number of inputs. The join order is chosen by dynamic programming
+// over subsets of inputs (greedily for many inputs), and executed as a left-deep
+// pipeline of hash joins: the first input is scanned, and every following input is
+// hashed on its join key. Intermediate results are never materialized.
+//
+// Each output row has one tuple per input, at the position of that input.
+//
+// Statistics not given are computed with one scan per input, before planning. Result
+// sets can only be read once (by the join itself): their statistics have to be given.
+public class MultiJoin {
+	// Above this many inputs, the order is chosen greedily
+	public static final int EXHAUSTIVE_LIMIT = 10;
+
+	public static class Input<T extends Tuple> {
+		private int position;
+		private Queriable<T> queriable;
+
+		private RelationStatistics statistics;
+
+		private long numberTuples;
+		private Map<Function<Tuple, Object>, Long> distinctKeys;
+
+		private Input(int position, Queriable<T> queriable) {
+			this.position = position;
+			this.queriable = queriable;
+
+			this.statistics = null;
+
+			this.numberTuples = -1;
+			this.distinctKeys = new HashMap<>();
+		}
+
+		public int getPosition() {
+			return position;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T get(Tuple[] row) {
+			return (T) row[position];
+		}
+
+		// The number of distinct keys given is used for every condition on the input
+		public void setStatistics(RelationStatistics statistics) {
+			this.statistics = statistics;
+
+			this.numberTuples = -1;
+			this.distinctKeys.clear();
+		}
+
+		// A single scan counts the tuples and the distinct keys of every extractor
+		private void computeStatistics(List<Function<Tuple, Object>> keyExtractors) {
+			if(numberTuples >= 0 && distinctKeys.keySet().containsAll(keyExtractors)) {
+				return;
+			}
+
+			if(statistics != null) {
+				numberTuples = statistics.getNumberTuples();
+
+				for(Function<Tuple, Object> keyExtractor: keyExtractors) {
+					distinctKeys.put(keyExtractor, statistics.getDistinctKeys());
+				}
+
+				return;
+			}
+
+			if(!(queriable instanceof BlockQueriable)) {
+				throw new RuntimeException("Error planning join: statistics of input " + position + " (readable only once) must be given with setStatistics()");
+			}
+
+			ArrayList<Set<Object>> keys = new ArrayList<>();
+
+			for(int i = 0; i < keyExtractors.size(); i++) {
+				keys.add(new HashSet<>());
+			}
+
+			long count = 0;
+
+			for(Record<T> record: queriable) {
+				T tuple = record.getTuple();
+
+				for(int i = 0; i < keyExtractors.size(); i++) {
+					keys.get(i).add(keyExtractors.get(i).apply(tuple));
+				}
+
+				count++;
+			}
+
+			numberTuples = count;
+
+			for(int i = 0; i < keyExtractors.size(); i++) {
+				distinctKeys.put(keyExtractors.get(i), (long) keys.get(i).size());
+			}
+		}
+
+		private long getNumberTuples() {
+			return numberTuples;
+		}
+
+		private long getDistinctKeys(Function<Tuple, Object> keyExtractor) {
+			return distinctKeys.get(keyExtractor);
+		}
+
+		private Map<Object, List<Tuple>> hash(Function<Tuple, Object> keyExtractor) {
+			Map<Object, List<Tuple>> table = new HashMap<>();
+
+			for(Record<T> record: queriable) {
+				T tuple = record.getTuple();
+
+				table.computeIfAbsent(keyExtractor.apply(tuple), k -> new ArrayList<>()).add(tuple);
+			}
+
+			return table;
+		}
+	}
+
+	private class Condition {
+		public int position1;
+		public int position2;
+
+		public Function<Tuple, Object> keyExtractor1;
+		public Function<Tuple, Object> keyExtractor2;
+
+		public double selectivity;
+
+		public Condition(int position1, Function<Tuple, Object> keyExtractor1, int position2, Function<Tuple, Object> keyExtractor2) {
+			this.position1 = position1;
+			this.position2 = position2;
+
+			this.keyExtractor1 = keyExtractor1;
+			this.keyExtractor2 = keyExtractor2;
+
+			this.selectivity = -1;
+		}
+
+		public boolean connects(int mask, int position) {
+			return (position1 == position && (mask & (1 << position2)) != 0) ||
+			       (position2 == position && (mask & (1 << position1)) != 0);
+		}
+
+		// Classic estimate: each key of the side with fewer keys finds a match
+		public double getSelectivity() {
+			if(selectivity < 0) {
+				long distinct1 = inputs.get(position1).getDistinctKeys(keyExtractor1);
+				long distinct2 = inputs.get(position2).getDistinctKeys(keyExtractor2);
+
+				selectivity = 1.0 / Math.max(1, Math.max(distinct1, distinct2));
+			}
+
+			return selectivity;
+		}
+
+		// Key of the side already in the row, and key of the side being hashed
+		public Function<Tuple[], Object> probeKey(int position) {
+			if(position == position2) {
+				return row -> keyExtractor1.apply(row[position1]);
+			}
+
+			return row -> keyExtractor2.apply(row[position2]);
+		}
+
+		public Function<Tuple, Object> buildKey(int position) {
+			return (position == position2) ? keyExtractor2 : keyExtractor1;
+		}
+	}
+
+	private class PartialPlan {
+		public int[] order;
+
+		public double cost;
+		public double tuples;
+
+		public PartialPlan(int[] order, double cost, double tuples) {
+			this.order = order;
+
+			this.cost = cost;
+			this.tuples = tuples;
+		}
+	}
+
+	private ArrayList<Input<? extends Tuple>> inputs;
+	private ArrayList<Condition> conditions;
+
+	public MultiJoin() {
+		this.inputs = new ArrayList<>();
+		this.conditions = new ArrayList<>();
+	}
+
+	public <T extends Tuple> Input<T> addInput(Queriable<T> queriable) {
+		if(inputs.size() == Integer.SIZE - 1) {
+			throw new RuntimeException("Error adding input: at most " + (Integer.SIZE - 1) + " inputs are supported");
+		}
+
+		Input<T> input = new Input<T>(inputs.size(), queriable);
+
+		inputs.add(input);
+
+		return input;
+	}
+
+	// Adds the condition keyExtractor1(x) = keyExtractor2(y)
+	public <X extends Tuple, Y extends Tuple, K extends Comparable<K>> void addCondition(Input<X> input1, Function<X, K> keyExtractor1, Input<Y> input2, Function<Y, K> keyExtractor2) {
+		conditions.add(new Condition(input1.getPosition(), erase(keyExtractor1), input2.getPosition(), erase(keyExtractor2)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <X extends Tuple, K> Function<Tuple, Object> erase(Function<X, K> keyExtractor) {
+		return t -> keyExtractor.apply((X) t);
+	}
+
+	public MultiJoinPlan plan() {
+		if(inputs.isEmpty()) {
+			throw new RuntimeException("Error planning join: no inputs");
+		}
+
+		computeStatistics();
+
+		PartialPlan best = (inputs.size() <= EXHAUSTIVE_LIMIT) ? planExhaustive() : planGreedy();
+
+		int[] order = best.order;
+
+		return new MultiJoinPlan(order, best.cost, best.tuples, () -> () -> pipeline(order));
+	}
+
+	public Iterable<Tuple[]> join() {
+		return plan().execute();
+	}
+
+	// Each input is scanned once, for the keys of all the conditions on it
+	private void computeStatistics() {
+		for(Input<? extends Tuple> input: inputs) {
+			ArrayList<Function<Tuple, Object>> keyExtractors = new ArrayList<>();
+
+			for(Condition condition: conditions) {
+				if(condition.position1 == input.position) {
+					keyExtractors.add(condition.keyExtractor1);
+				}
+
+				if(condition.position2 == input.position) {
+					keyExtractors.add(condition.keyExtractor2);
+				}
+			}
+
+			input.computeStatistics(keyExtractors);
+		}
+	}
+
+	// Best left-deep order for every subset of inputs, built from the best order
+	// of the subset without its last input. Cross products are only considered
+	// when no remaining input is connected to the subset.
+	private PartialPlan planExhaustive() {
+		int n = inputs.size();
+
+		PartialPlan[] best = new PartialPlan[1 << n];
+
+		for(int i = 0; i < n; i++) {
+			best[1 << i] = new PartialPlan(new int[] { i }, 0.0, inputs.get(i).getNumberTuples());
+		}
+
+		for(int mask = 1; mask < (1 << n); mask++) {
+			if(best[mask] == null) {
+				continue;
+			}
+
+			boolean connected = hasConnection(mask);
+
+			for(int position = 0; position < n; position++) {
+				if((mask & (1 << position)) != 0 || (connected && !isConnected(mask, position))) {
+					continue;
+				}
+
+				PartialPlan extended = extend(best[mask], mask, position);
+
+				int extendedMask = mask | (1 << position);
+
+				if(best[extendedMask] == null || extended.cost < best[extendedMask].cost) {
+					best[extendedMask] = extended;
+				}
+			}
+		}
+
+		return best[(1 << n) - 1];
+	}
+
+	// Starts from the largest input, then repeatedly adds the input giving the smallest result
+	private PartialPlan planGreedy() {
+		int n = inputs.size();
+
+		int first = 0;
+
+		for(int i = 1; i < n; i++) {
+			if(inputs.get(i).getNumberTuples() > inputs.get(first).getNumberTuples()) {
+				first = i;
+			}
+		}
+
+		PartialPlan current = new PartialPlan(new int[] { first }, 0.0, inputs.get(first).getNumberTuples());
+		int mask = 1 << first;
+
+		while(mask != (1 << n) - 1) {
+			boolean connected = hasConnection(mask);
+
+			PartialPlan next = null;
+			int nextPosition = -1;
+
+			for(int position = 0; position < n; position++) {
+				if((mask & (1 << position)) != 0 || (connected && !isConnected(mask, position))) {
+					continue;
+				}
+
+				PartialPlan extended = extend(current, mask, position);
+
+				if(next == null || extended.tuples < next.tuples) {
+					next = extended;
+					nextPosition = position;
+				}
+			}
+
+			current = next;
+			mask |= (1 << nextPosition);
+		}
+
+		return current;
+	}
+
+	// Cost of a step: the tuples hashed, plus the tuples it produces
+	private PartialPlan extend(PartialPlan plan, int mask, int position) {
+		long numberTuples = inputs.get(position).getNumberTuples();
+
+		double tuples = plan.tuples * numberTuples;
+
+		for(Condition condition: conditions) {
+			if(condition.connects(mask, position)) {
+				tuples *= condition.getSelectivity();
+			}
+		}
+
+		int[] order = new int[plan.order.length + 1];
+
+		System.arraycopy(plan.order, 0, order, 0, plan.order.length);
+		order[plan.order.length] = position;
+
+		return new PartialPlan(order, plan.cost + numberTuples + tuples, tuples);
+	}
+
+	private boolean isConnected(int mask, int position) {
+		for(Condition condition: conditions) {
+			if(condition.connects(mask, position)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean hasConnection(int mask) {
+		for(int position = 0; position < inputs.size(); position++) {
+			if((mask & (1 << position)) == 0 && isConnected(mask, position)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private Iterator<Tuple[]> pipeline(int[] order) {
+		int n = inputs.size();
+
+		Iterator<Tuple[]> iterator = new ScanIterator(inputs.get(order[0]), n);
+
+		int mask = 1 << order[0];
+
+		for(int i = 1; i < order.length; i++) {
+			int position = order[i];
+
+			ArrayList<Condition> connecting = new ArrayList<>();
+
+			for(Condition condition: conditions) {
+				if(condition.connects(mask, position)) {
+					connecting.add(condition);
+				}
+			}
+
+			// The first condition is used for hashing, the others are checked on each match
+			if(connecting.isEmpty()) {
+				Map<Object, List<Tuple>> table = inputs.get(position).hash(t -> Boolean.TRUE);
+
+				iterator = new HashJoinIterator(iterator, table, row -> Boolean.TRUE, position, connecting);
+			}
+			else {
+				Condition hashed = connecting.remove(0);
+
+				Map<Object, List<Tuple>> table = inputs.get(position).hash(hashed.buildKey(position));
+
+				iterator = new HashJoinIterator(iterator, table, hashed.probeKey(position), position, connecting);
+			}
+
+			mask |= (1 << position);
+		}
+
+		return iterator;
+	}
+
+	private static class ScanIterator implements Iterator<Tuple[]> {
+		private Iterator<? extends Record<? extends Tuple>> iterator;
+
+		private int position;
+		private int width;
+
+		public ScanIterator(Input<? extends Tuple> input, int width) {
+			this.iterator = input.queriable.iterator();
+
+			this.position = input.position;
+			this.width = width;
+		}
+
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		public Tuple[] next() {
+			Tuple[] row = new Tuple[width];
+
+			row[position] = iterator.next().getTuple();
+
+			return row;
+		}
+	}
+
+	private class HashJoinIterator implements Iterator<Tuple[]> {
+		private Iterator<Tuple[]> left;
+
+		private Map<Object, List<Tuple>> table;
+		private Function<Tuple[], Object> probeKey;
+
+		private int position;
+		private List<Condition> residuals;
+
+		private Tuple[] leftRow;
+		private Iterator<Tuple> matches;
+
+		private Tuple[] next;
+
+		public HashJoinIterator(Iterator<Tuple[]> left, Map<Object, List<Tuple>> table, Function<Tuple[], Object> probeKey, int position, List<Condition> residuals) {
+			this.left = left;
+
+			this.table = table;
+			this.probeKey = probeKey;
+
+			this.position = position;
+			this.residuals = residuals;
+
+			this.matches = Collections.emptyIterator();
+
+			advance();
+		}
+
+		private void advance() {
+			while(true) {
+				while(matches.hasNext()) {
+					Tuple[] row = leftRow.clone();
+
+					row[position] = matches.next();
+
+					if(satisfiesResiduals(row)) {
+						next = row;
+						return;
+					}
+				}
+
+				if(!left.hasNext()) {
+					next = null;
+					return;
+				}
+
+				leftRow = left.next();
+
+				List<Tuple> bucket = table.get(probeKey.apply(leftRow));
+
+				matches = (bucket == null) ? Collections.emptyIterator() : bucket.iterator();
+			}
+		}
+
+		private boolean satisfiesResiduals(Tuple[] row) {
+			for(Condition condition: residuals) {
+				Object key1 = condition.keyExtractor1.apply(row[condition.position1]);
+				Object key2 = condition.keyExtractor2.apply(row[condition.position2]);
+
+				if(!key1.equals(key2)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		public boolean hasNext() {
+			return (next != null);
+		}
+
+		public Tuple[] next() {
+			if(next == null) {
+				throw new NoSuchElementException();
+			}
+
+			Tuple[] current = next;
+
+			advance();
+
+			return current;
+		}
+	}
+}
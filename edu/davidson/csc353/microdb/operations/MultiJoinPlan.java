@@ -0,0 +1,54 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.Arrays;
+
+import java.util.function.Supplier;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+
+public class MultiJoinPlan {
+	private int[] order;
+
+	private double estimatedCost;
+	private double estimatedTuples;
+
+	private Supplier<Iterable<Tuple[]>> executor;
+
+	public MultiJoinPlan(int[] order, double estimatedCost, double estimatedTuples, Supplier<Iterable<Tuple[]>> executor) {
+		this.order = order;
+
+		this.estimatedCost = estimatedCost;
+		this.estimatedTuples = estimatedTuples;
+
+		this.executor = executor;
+	}
+
+	// Input positions, in join order: the first input is scanned, each following one is hashed
+	public int[] getOrder() {
+		return order;
+	}
+
+	// Tuples hashed plus tuples produced by every join in the pipeline
+	public double getEstimatedCost() {
+		return estimatedCost;
+	}
+
+	public double getEstimatedTuples() {
+		return estimatedTuples;
+	}
+
+	public Iterable<Tuple[]> execute() {
+		return executor.get();
+	}
+
+	public String toString() {
+		return "order = " + Arrays.toString(order) +
+			String.format(", cost = %.1f tuples, output = %.1f tuples", estimatedCost, estimatedTuples);
+	}
+}
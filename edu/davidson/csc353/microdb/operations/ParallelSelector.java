@@ -0,0 +1,183 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.ArrayList;
+import java.util.Queue;
+
+import java.util.Collection;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import java.util.function.Predicate;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Block;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.BlockQueriable;
+
+public class ParallelSelector<T extends Tuple> {
+	// Each leaf task scans at least this many blocks
+	public static final int MINIMUM_RANGE = 4;
+
+	private Queriable<T> queriable;
+	private ForkJoinPool pool;
+
+	public ParallelSelector(Queriable<T> queriable) {
+		this(queriable, ForkJoinPool.commonPool());
+	}
+
+	public ParallelSelector(Queriable<T> queriable, ForkJoinPool pool) {
+		this.queriable = queriable;
+		this.pool = pool;
+	}
+
+	// Matching records, in block order
+	public Iterable<Record<T>> selectPredicate(Predicate<T> predicate) {
+		if(!(queriable instanceof BlockQueriable)) {
+			return selectSequential(predicate);
+		}
+
+		BlockQueriable<T> reader = ((BlockQueriable<T>) queriable).openReader();
+
+		int numberBlocks = reader.getNumberBlocks();
+
+		return pool.invoke(new OrderedScan(reader, predicate, 0, numberBlocks, threshold(numberBlocks)));
+	}
+
+	// Matching records, in whatever order the workers find them
+	public Iterable<Record<T>> selectPredicateUnordered(Predicate<T> predicate) {
+		if(!(queriable instanceof BlockQueriable)) {
+			return selectSequential(predicate);
+		}
+
+		BlockQueriable<T> reader = ((BlockQueriable<T>) queriable).openReader();
+
+		int numberBlocks = reader.getNumberBlocks();
+
+		Queue<Record<T>> results = new ConcurrentLinkedQueue<>();
+
+		pool.invoke(new UnorderedScan(reader, predicate, 0, numberBlocks, threshold(numberBlocks), results));
+
+		return results;
+	}
+
+	// The records of other queriables (e.g., a result set) are only known to their
+	// iterator, so they cannot be split into block ranges: they are filtered in a single pass
+	private Iterable<Record<T>> selectSequential(Predicate<T> predicate) {
+		ArrayList<Record<T>> results = new ArrayList<>();
+
+		for(Record<T> record: queriable) {
+			if(predicate.test(record.getTuple())) {
+				results.add(record);
+			}
+		}
+
+		return results;
+	}
+
+	// Creates about four leaf tasks per worker, leaving room for work stealing
+	private int threshold(int numberBlocks) {
+		return Math.max(MINIMUM_RANGE, numberBlocks / (pool.getParallelism() * 4));
+	}
+
+	private void scan(BlockQueriable<T> reader, Predicate<T> predicate, int low, int high, Collection<Record<T>> results) {
+		for(int blockNumber = low; blockNumber < high; blockNumber++) {
+			Block<T> block = reader.get(blockNumber);
+
+			for(Record<T> record: block) {
+				if(predicate.test(record.getTuple())) {
+					results.add(record);
+				}
+			}
+		}
+	}
+
+	private class OrderedScan extends RecursiveTask<ArrayList<Record<T>>> {
+		private static final long serialVersionUID = 1L;
+
+		private BlockQueriable<T> reader;
+		private Predicate<T> predicate;
+
+		private int low;
+		private int high;
+		private int threshold;
+
+		public OrderedScan(BlockQueriable<T> reader, Predicate<T> predicate, int low, int high, int threshold) {
+			this.reader = reader;
+			this.predicate = predicate;
+
+			this.low = low;
+			this.high = high;
+			this.threshold = threshold;
+		}
+
+		protected ArrayList<Record<T>> compute() {
+			if(high - low <= threshold) {
+				ArrayList<Record<T>> results = new ArrayList<>();
+
+				scan(reader.openReader(), predicate, low, high, results);
+
+				return results;
+			}
+
+			int middle = (low + high) >>> 1;
+
+			OrderedScan left = new OrderedScan(reader, predicate, low, middle, threshold);
+			OrderedScan right = new OrderedScan(reader, predicate, middle, high, threshold);
+
+			left.fork();
+
+			ArrayList<Record<T>> rightResults = right.compute();
+			ArrayList<Record<T>> leftResults = left.join();
+
+			leftResults.addAll(rightResults);
+
+			return leftResults;
+		}
+	}
+
+	private class UnorderedScan extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private BlockQueriable<T> reader;
+		private Predicate<T> predicate;
+
+		private int low;
+		private int high;
+		private int threshold;
+
+		private Queue<Record<T>> results;
+
+		public UnorderedScan(BlockQueriable<T> reader, Predicate<T> predicate, int low, int high, int threshold, Queue<Record<T>> results) {
+			this.reader = reader;
+			this.predicate = predicate;
+
+			this.low = low;
+			this.high = high;
+			this.threshold = threshold;
+
+			this.results = results;
+		}
+
+		protected void compute() {
+			if(high - low <= threshold) {
+				scan(reader.openReader(), predicate, low, high, results);
+				return;
+			}
+
+			int middle = (low + high) >>> 1;
+
+			invokeAll(new UnorderedScan(reader, predicate, low, middle, threshold, results),
+			          new UnorderedScan(reader, predicate, middle, high, threshold, results));
+		}
+	}
+}
@@ -23,7 +23,11 @@ public class PredicateIterator<T extends Tuple> implements Iterator<Record<T>> {
 	private Record<T> current;
 
 	public PredicateIterator(Queriable<T> relation, RecordLocation first, Predicate<T> predicate, boolean abortOnFalse) {
-		this.iterator = relation.iterator(first.getBlockNumber(), first.getRecordNumber());
+		this(relation.iterator(first.getBlockNumber(), first.getRecordNumber()), predicate, abortOnFalse);
+	}
+
+	public PredicateIterator(Iterator<Record<T>> iterator, Predicate<T> predicate, boolean abortOnFalse) {
+		this.iterator = iterator;
 		this.predicate = predicate;
 		this.abortOnFalse = abortOnFalse;
 
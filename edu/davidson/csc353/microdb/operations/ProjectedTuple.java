@@ -0,0 +1,83 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.ArrayList;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+
+import edu.davidson.csc353.microdb.indexes.RecordLocation;
+
+// Carries a few fields of one or more source tuples, and where those tuples are
+// stored, so the full tuples can be fetched later. Saved as "b:r,b:r,...#" followed
+// by each field as "length:field": fields may contain any character, commas included.
+public class ProjectedTuple implements Tuple {
+	public String[] fields;
+	public RecordLocation[] locations;
+
+	public ProjectedTuple(String[] fields, RecordLocation[] locations) {
+		this.fields = fields;
+		this.locations = locations;
+	}
+
+	public void load(String input) {
+		int end = input.indexOf('#');
+
+		String[] pairs = (end == 0) ? new String[0] : input.substring(0, end).split(",");
+
+		locations = new RecordLocation[pairs.length];
+
+		for(int i = 0; i < pairs.length; i++) {
+			int separator = pairs[i].indexOf(':');
+
+			locations[i] = new RecordLocation(
+				Integer.parseInt(pairs[i].substring(0, separator)),
+				Integer.parseInt(pairs[i].substring(separator + 1)));
+		}
+
+		ArrayList<String> loaded = new ArrayList<>();
+
+		for(int position = end + 1; position < input.length(); ) {
+			int separator = input.indexOf(':', position);
+			int fieldEnd = separator + 1 + Integer.parseInt(input.substring(position, separator));
+
+			loaded.add(input.substring(separator + 1, fieldEnd));
+
+			position = fieldEnd;
+		}
+
+		fields = loaded.toArray(new String[loaded.size()]);
+	}
+
+	public String save() {
+		StringBuilder builder = new StringBuilder();
+
+		for(int i = 0; i < locations.length; i++) {
+			if(i > 0) {
+				builder.append(",");
+			}
+
+			builder.append(locations[i].getBlockNumber()).append(":").append(locations[i].getRecordNumber());
+		}
+
+		builder.append("#");
+
+		for(String field: fields) {
+			builder.append(field.length()).append(":").append(field);
+		}
+
+		return builder.toString();
+	}
+
+	public int getSize() {
+		return save().getBytes().length;
+	}
+
+	public String toString() {
+		return "[" + save() + "]";
+	}
+}
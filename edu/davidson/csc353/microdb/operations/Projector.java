@@ -0,0 +1,102 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.Iterator;
+
+import java.util.function.Function;
+import java.util.function.BiFunction;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.TemporaryRelation;
+import edu.davidson.csc353.microdb.files.TemporarySpace;
+
+import edu.davidson.csc353.microdb.files.Queriable;
+
+import edu.davidson.csc353.microdb.indexes.RecordLocation;
+
+// Late materialization: a pipeline carries ProjectedTuples holding only the fields
+// it needs (e.g., join keys) plus the locations of the source records, and the full
+// tuples are fetched only when the final output is read.
+//
+// Locations refer to the blocks of the relation the records were read from. A
+// ResultSet (e.g., from a Selector) keeps the locations of its base relation.
+public class Projector<T extends Tuple> {
+	private Queriable<T> queriable;
+
+	public Projector(Queriable<T> queriable) {
+		this.queriable = queriable;
+	}
+
+	// With no extractors, only the record locations are kept
+	@SafeVarargs
+	public final TemporaryRelation<ProjectedTuple> project(Function<T, String>... extractors) {
+		TemporaryRelation<ProjectedTuple> relation = TemporarySpace.create("project", () -> combine(null, null));
+
+		for(Record<T> record: queriable) {
+			T tuple = record.getTuple();
+
+			String[] fields = new String[extractors.length];
+
+			for(int i = 0; i < extractors.length; i++) {
+				fields[i] = extractors[i].apply(tuple);
+			}
+
+			RecordLocation[] locations = { new RecordLocation(record.getBlockNumber(), record.getRecordNumber()) };
+
+			relation.appendRecord(new Record<ProjectedTuple>(new ProjectedTuple(fields, locations)));
+		}
+
+		return relation;
+	}
+
+	// To be used as the tuple maker of a Joiner over two projections:
+	// fields and locations of the right side follow those of the left side
+	public static ProjectedTuple combine(ProjectedTuple left, ProjectedTuple right) {
+		if(left == null || right == null) {
+			return new ProjectedTuple(new String[0], new RecordLocation[0]);
+		}
+
+		String[] fields = new String[left.fields.length + right.fields.length];
+
+		System.arraycopy(left.fields, 0, fields, 0, left.fields.length);
+		System.arraycopy(right.fields, 0, fields, left.fields.length, right.fields.length);
+
+		RecordLocation[] locations = new RecordLocation[left.locations.length + right.locations.length];
+
+		System.arraycopy(left.locations, 0, locations, 0, left.locations.length);
+		System.arraycopy(right.locations, 0, locations, left.locations.length, right.locations.length);
+
+		return new ProjectedTuple(fields, locations);
+	}
+
+	// Fetches the source tuple at the given location position of each row
+	public static <X extends Tuple> X fetch(ProjectedTuple row, int position, Queriable<X> base) {
+		RecordLocation location = row.locations[position];
+
+		return base.get(location.getBlockNumber(), location.getRecordNumber()).getTuple();
+	}
+
+	// The final output, built as it is iterated
+
+	public static <X extends Tuple, R> Iterable<R> materialize(Queriable<ProjectedTuple> rows, Queriable<X> base, Function<X, R> outputMaker) {
+		Iterator<R> iterator = new ConversionIterator<Record<ProjectedTuple>, R>(rows.iterator(), r -> {
+			return outputMaker.apply(fetch(r.getTuple(), 0, base));
+		});
+
+		return new IterableWrapper<R>(iterator);
+	}
+
+	public static <X extends Tuple, Y extends Tuple, R> Iterable<R> materialize(Queriable<ProjectedTuple> rows, Queriable<X> base1, Queriable<Y> base2, BiFunction<X, Y, R> outputMaker) {
+		Iterator<R> iterator = new ConversionIterator<Record<ProjectedTuple>, R>(rows.iterator(), r -> {
+			return outputMaker.apply(fetch(r.getTuple(), 0, base1), fetch(r.getTuple(), 1, base2));
+		});
+
+		return new IterableWrapper<R>(iterator);
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import java.util.function.Supplier;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Block;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.MemoryRelation;
+
+import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.BlockQueriable;
+
+import edu.davidson.csc353.microdb.utils.DecentPQ;
+
+// Caches materialized query results. A result is keyed by a canonical description
+// of the query plan, and is only served while the versions of the relations it
+// was computed from are unchanged. Results hold copies of the tuples of the query, and
+// are handed out through read-only views that copy every tuple they return, so neither
+// the caller nor the source of the query can change what is cached.
+public class QueryCache {
+	public enum EvictionPolicy {
+		LRU,
+		LFU
+	}
+
+	private long capacityBytes;
+	private EvictionPolicy policy;
+
+	private long sizeBytes;
+
+	private HashMap<String, CacheEntry> entryMap;
+	private DecentPQ<CacheEntry> entryPQ;
+
+	private long hits;
+	private long misses;
+	private long invalidations;
+	private long evictions;
+
+	private class CacheEntry implements Comparable<CacheEntry> {
+		public String description;
+
+		public MemoryRelation<? extends Tuple> result;
+		public long[] versions;
+		public long size;
+
+		public long lastUsed;
+		public long uses;
+
+		public CacheEntry(String description, MemoryRelation<? extends Tuple> result, long[] versions, long size) {
+			this.description = description;
+
+			this.result = result;
+			this.versions = versions;
+			this.size = size;
+
+			this.lastUsed = System.nanoTime();
+			this.uses = 1;
+		}
+
+		// The minimum is the next victim
+		public int compareTo(CacheEntry other) {
+			if(policy == EvictionPolicy.LFU && uses != other.uses) {
+				return Long.compare(uses, other.uses);
+			}
+
+			return Long.compare(lastUsed, other.lastUsed);
+		}
+	}
+
+	public QueryCache(long capacityBytes, EvictionPolicy policy) {
+		this.capacityBytes = capacityBytes;
+		this.policy = policy;
+
+		this.sizeBytes = 0;
+
+		this.entryMap = new HashMap<>();
+		this.entryPQ = new DecentPQ<>();
+	}
+
+	// Returns the cached result for the description if all dependencies still have the
+	// versions seen when it was computed; otherwise, runs the query and caches its result.
+	// The query is materialized, so the returned relation can be iterated many times.
+	@SuppressWarnings("unchecked")
+	public synchronized <T extends Tuple> Queriable<T> get(String description, Supplier<T> tupleMaker, Supplier<Queriable<T>> query, Queriable<?>... dependencies) {
+		long[] versions = versionsOf(dependencies);
+
+		CacheEntry entry = entryMap.get(description);
+
+		if(entry != null) {
+			if(sameVersions(entry.versions, versions)) {
+				hits++;
+
+				entry.lastUsed = System.nanoTime();
+				entry.uses++;
+				entryPQ.increaseKey(entry);
+
+				return new CachedResult<T>((MemoryRelation<T>) entry.result, tupleMaker);
+			}
+
+			invalidations++;
+			remove(entry);
+		}
+
+		misses++;
+
+		MemoryRelation<T> result = new MemoryRelation<T>();
+
+		for(Record<T> record: query.get()) {
+			result.appendRecord(new Record<T>(copy(record.getTuple(), tupleMaker)));
+		}
+
+		long size = (long) result.getNumberBlocks() * Block.SIZE;
+
+		if(size <= capacityBytes) {
+			while(sizeBytes + size > capacityBytes) {
+				evictions++;
+				remove(entryPQ.peek());
+			}
+
+			entry = new CacheEntry(description, result, versions, size);
+
+			entryMap.put(description, entry);
+			entryPQ.add(entry);
+
+			sizeBytes += size;
+		}
+
+		return new CachedResult<T>(result, tupleMaker);
+	}
+
+	private static <T extends Tuple> T copy(T tuple, Supplier<T> tupleMaker) {
+		T copy = tupleMaker.get();
+
+		copy.load(tuple.save());
+
+		return copy;
+	}
+
+	// Read-only view of a cached result: the blocks and records it returns hold copies
+	private static class CachedResult<T extends Tuple> implements BlockQueriable<T> {
+		private MemoryRelation<T> result;
+		private Supplier<T> tupleMaker;
+
+		public CachedResult(MemoryRelation<T> result, Supplier<T> tupleMaker) {
+			this.result = result;
+			this.tupleMaker = tupleMaker;
+		}
+
+		private Record<T> copy(Record<T> record) {
+			return new Record<T>(record.getBlockNumber(), record.getRecordNumber(), QueryCache.copy(record.getTuple(), tupleMaker));
+		}
+
+		public int getNumberBlocks() {
+			return result.getNumberBlocks();
+		}
+
+		public Block<T> get(int blockNumber) {
+			Block<T> block = new Block<T>(blockNumber);
+
+			for(Record<T> record: result.get(blockNumber)) {
+				block.addRecord(copy(record));
+			}
+
+			return block;
+		}
+
+		public Record<T> get(int blockNumber, int recordNumber) {
+			return copy(result.get(blockNumber, recordNumber));
+		}
+
+		public Iterator<Record<T>> iterator() {
+			return new ConversionIterator<>(result.iterator(), this::copy);
+		}
+
+		public Iterator<Record<T>> iterator(int blockNumber, int recordNumber) {
+			return new ConversionIterator<>(result.iterator(blockNumber, recordNumber), this::copy);
+		}
+
+		public long getVersion() {
+			return result.getVersion();
+		}
+
+		// The cached relation is never written, so all readers can share it
+		public BlockQueriable<T> openReader() {
+			return this;
+		}
+	}
+
+	public synchronized void invalidate(String description) {
+		CacheEntry entry = entryMap.get(description);
+
+		if(entry != null) {
+			invalidations++;
+			remove(entry);
+		}
+	}
+
+	public synchronized void clear() {
+		entryMap.clear();
+		entryPQ = new DecentPQ<>();
+
+		sizeBytes = 0;
+	}
+
+	private void remove(CacheEntry entry) {
+		entryMap.remove(entry.description);
+		entryPQ.remove(entry);
+
+		sizeBytes -= entry.size;
+	}
+
+	private static long[] versionsOf(Queriable<?>[] dependencies) {
+		long[] versions = new long[dependencies.length];
+
+		for(int i = 0; i < dependencies.length; i++) {
+			versions[i] = dependencies[i].getVersion();
+		}
+
+		return versions;
+	}
+
+	private static boolean sameVersions(long[] versions1, long[] versions2) {
+		if(versions1.length != versions2.length) {
+			return false;
+		}
+
+		for(int i = 0; i < versions1.length; i++) {
+			if(versions1[i] != versions2[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+
+		return (lookups == 0) ? 0.0 : (double) hits / lookups;
+	}
+
+	public synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+
+	public synchronized int getNumberEntries() {
+		return entryMap.size();
+	}
+
+	public synchronized String toString() {
+		return String.format("[entries=%d, bytes=%d/%d, hits=%d, misses=%d, hit rate=%.2f, invalidations=%d, evictions=%d]",
+			entryMap.size(), sizeBytes, capacityBytes, hits, misses, getHitRate(), invalidations, evictions);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import java.util.function.Function;
+
+// Walks an iterator sorted by key, skipping the elements before the lower
+// bound and stopping (without reading further) once the upper bound is passed
+public class RangeIterator<X, K extends Comparable<K>> implements Iterator<X> {
+	private Iterator<X> iterator;
+	private Function<X, K> keyExtractor;
+
+	private K high;
+	private boolean highInclusive;
+
+	private X next;
+
+	public RangeIterator(Iterator<X> iterator, Function<X, K> keyExtractor, K low, K high, Inclusivity inclusivity) {
+		this.iterator = iterator;
+		this.keyExtractor = keyExtractor;
+
+		this.high = high;
+		this.highInclusive = inclusivity.includesHigh();
+
+		next = null;
+
+		while(iterator.hasNext()) {
+			X candidate = iterator.next();
+
+			int compareLow = keyExtractor.apply(candidate).compareTo(low);
+
+			if(compareLow > 0 || (compareLow == 0 && inclusivity.includesLow())) {
+				next = check(candidate);
+				break;
+			}
+		}
+	}
+
+	private X check(X candidate) {
+		int compareHigh = keyExtractor.apply(candidate).compareTo(high);
+
+		if(compareHigh < 0 || (compareHigh == 0 && highInclusive)) {
+			return candidate;
+		}
+
+		return null;
+	}
+
+	public boolean hasNext() {
+		return (next != null);
+	}
+
+	public X next() {
+		if(next == null) {
+			throw new NoSuchElementException();
+		}
+
+		X current = next;
+
+		next = iterator.hasNext() ? check(iterator.next()) : null;
+
+		return current;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.Set;
+import java.util.HashSet;
+
+import java.util.function.Function;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.BlockQueriable;
+
+public class RelationStatistics {
+	private int numberBlocks;
+	private long numberTuples;
+	private long distinctKeys;
+
+	public RelationStatistics(int numberBlocks, long numberTuples, long distinctKeys) {
+		this.numberBlocks = numberBlocks;
+		this.numberTuples = numberTuples;
+		this.distinctKeys = distinctKeys;
+	}
+
+	// One full scan of the relation. Only relations stored in blocks can be read again; for
+	// others (e.g., a result set) the scan would leave nothing to be joined, so their
+	// statistics have to be provided instead.
+	public static <T extends Tuple, K> RelationStatistics compute(Queriable<T> queriable, Function<T, K> keyExtractor) {
+		if(!(queriable instanceof BlockQueriable)) {
+			throw new RuntimeException("Error computing statistics: the relation can only be read once");
+		}
+
+		Set<K> keys = new HashSet<>();
+
+		long numberTuples = 0;
+
+		for(Record<T> record: queriable) {
+			keys.add(keyExtractor.apply(record.getTuple()));
+			numberTuples++;
+		}
+
+		return new RelationStatistics(queriable.getNumberBlocks(), numberTuples, keys.size());
+	}
+
+	public int getNumberBlocks() {
+		return numberBlocks;
+	}
+
+	public long getNumberTuples() {
+		return numberTuples;
+	}
+
+	public long getDistinctKeys() {
+		return distinctKeys;
+	}
+
+	public double getTuplesPerBlock() {
+		return (numberBlocks == 0) ? 1.0 : Math.max(1.0, (double) numberTuples / numberBlocks);
+	}
+
+	// Average number of tuples sharing each key
+	public double getTuplesPerKey() {
+		return (distinctKeys == 0) ? 0.0 : (double) numberTuples / distinctKeys;
+	}
+
+	public String toString() {
+		return "[blocks=" + numberBlocks + ", tuples=" + numberTuples + ", keys=" + distinctKeys + "]";
+	}
+}
@@ -7,11 +7,13 @@
 package edu.davidson.csc353.microdb.operations;
 
 import java.util.Iterator;
+
 import java.util.function.Predicate;
 
 import edu.davidson.csc353.microdb.files.Tuple;
 import edu.davidson.csc353.microdb.files.Record;
 import edu.davidson.csc353.microdb.files.Block;
+import edu.davidson.csc353.microdb.files.RawPredicate;
 
 import edu.davidson.csc353.microdb.indexes.RecordLocation;
 
@@ -26,11 +28,33 @@ public class ResultSet<T extends Tuple> implements Queriable<T> {
 		this.iterator = new LocationIterator<T>(base, records);
 	}
 
+	// With bitmapScan, the locations are visited block by block (see BitmapLocationIterator)
+	public ResultSet(Queriable<T> base, Iterable<RecordLocation> records, boolean bitmapScan) {
+		this.base = base;
+
+		if(bitmapScan) {
+			this.iterator = new BitmapLocationIterator<T>(base, records);
+		}
+		else {
+			this.iterator = new LocationIterator<T>(base, records);
+		}
+	}
+
 	public ResultSet(Queriable<T> base, RecordLocation first, Predicate<T> predicate, boolean abortOnFalse) {
 		this.base = base;
 		this.iterator = new PredicateIterator<T>(base, first, predicate, abortOnFalse);
 	}
 
+	public ResultSet(Queriable<T> base, Iterator<Record<T>> iterator) {
+		this.base = base;
+		this.iterator = iterator;
+	}
+
+	public ResultSet(Queriable<T> base, RawPredicate rawPredicate, Predicate<T> predicate) {
+		this.base = base;
+		this.iterator = new PredicateIterator<T>(base.iterator(rawPredicate), predicate, false);
+	}
+
 	public Iterator<Record<T>> iterator() {
 		return iterator;
 	}
@@ -50,4 +74,8 @@ public class ResultSet<T extends Tuple> implements Queriable<T> {
 	public Iterator<Record<T>> iterator(int blockNumber, int recordNumber) {
 		return base.iterator(blockNumber, recordNumber);
 	}
+
+	public long getVersion() {
+		return base.getVersion();
+	}
 }
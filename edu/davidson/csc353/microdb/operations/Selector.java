@@ -6,18 +6,26 @@
  */
 package edu.davidson.csc353.microdb.operations;
 
+import java.util.Iterator;
+
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 import edu.davidson.csc353.microdb.files.Tuple;
 import edu.davidson.csc353.microdb.files.Record;
 import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.RawPredicate;
 
 import edu.davidson.csc353.microdb.indexes.RecordLocation;
 
+import edu.davidson.csc353.microdb.indexes.MemoryPrimaryIndex;
+import edu.davidson.csc353.microdb.indexes.MemorySecondaryIndex;
+
 import edu.davidson.csc353.microdb.indexes.PrimaryIndex;
 import edu.davidson.csc353.microdb.indexes.SecondaryIndex;
 
+import edu.davidson.csc353.microdb.indexes.bptree.BPTreeIndex;
+
 public class Selector<T extends Tuple> {
 	private Queriable<T> queriable;
 
@@ -37,6 +45,11 @@ public class Selector<T extends Tuple> {
 		return new ResultSet<T>(queriable, first, predicate, abortOnFalse);
 	}
 
+	// The raw predicate is tested on the encoded records, before any tuple is created
+	public Queriable<T> selectPredicate(RawPredicate rawPredicate, Predicate<T> predicate) {
+		return new ResultSet<T>(queriable, rawPredicate, predicate);
+	}
+
 	public <K extends Comparable<K>> Queriable<T> selectAll(PrimaryIndex<T, K> index, K key) {
 		RecordLocation first = new RecordLocation(0, 0);
 
@@ -58,4 +71,41 @@ public class Selector<T extends Tuple> {
 	public <K extends Comparable<K>> Queriable<T> selectMatchingKeys(SecondaryIndex<T, K> index, K key) {
 		return new ResultSet<T>(queriable, index.get(key));
 	}
+
+	public <K extends Comparable<K>> Queriable<T> selectMatchingKeys(SecondaryIndex<T, K> index, K key, boolean bitmapScan) {
+		return new ResultSet<T>(queriable, index.get(key), bitmapScan);
+	}
+
+	// Range selections read in key order, and stop as soon as the upper bound is passed
+
+	// The relation must be sorted on the key (as for selectFollowingPredicate)
+	public <K extends Comparable<K>> Queriable<T> selectRange(PrimaryIndex<T, K> index, K low, K high, Inclusivity inclusivity, Function<T, K> keyExtractor) {
+		RecordLocation first = index.get(low);
+
+		if(first == null) {
+			first = new RecordLocation(0, 0);
+		}
+
+		Iterator<Record<T>> iterator = queriable.iterator(first.getBlockNumber(), first.getRecordNumber());
+
+		return new ResultSet<T>(queriable, new RangeIterator<Record<T>, K>(iterator, r -> keyExtractor.apply(r.getTuple()), low, high, inclusivity));
+	}
+
+	public <K extends Comparable<K>> Queriable<T> selectRange(MemoryPrimaryIndex<T, K> index, K low, K high, Inclusivity inclusivity) {
+		Iterator<K> keys = new RangeIterator<K, K>(index.allKeys(low).iterator(), k -> k, low, high, inclusivity);
+
+		return new ResultSet<T>(queriable, new IterableWrapper<RecordLocation>(new ConversionIterator<K, RecordLocation>(keys, index::get)));
+	}
+
+	public <K extends Comparable<K>> Queriable<T> selectRange(MemorySecondaryIndex<T, K> index, K low, K high, Inclusivity inclusivity) {
+		Iterator<K> keys = new RangeIterator<K, K>(index.allKeys(low).iterator(), k -> k, low, high, inclusivity);
+
+		Iterator<Iterable<RecordLocation>> locations = new ConversionIterator<K, Iterable<RecordLocation>>(keys, index::get);
+
+		return new ResultSet<T>(queriable, new IterableWrapper<RecordLocation>(new FlatteningIterator<RecordLocation>(locations)));
+	}
+
+	public <K extends Comparable<K>> Queriable<T> selectRange(BPTreeIndex<T, K> index, K low, K high, Inclusivity inclusivity) {
+		return new ResultSet<T>(queriable, index.getRange(low, high, inclusivity.includesLow(), inclusivity.includesHigh()));
+	}
 }
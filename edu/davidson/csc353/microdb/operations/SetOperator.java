@@ -0,0 +1,281 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.operations;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import java.util.function.Function;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.Queriable;
+
+// Set operations where two records are the same element if they have the same key.
+// Except for unionAll, every key appears at most once in the output, and the record
+// kept is the first one found (from the first input, on ties).
+//
+// The merge-based operations require both inputs ordered by key, stream them in a
+// single pass, and produce ordered output. The hash-based ones accept any order,
+// but keep a set of keys in memory.
+public class SetOperator<T extends Tuple, K extends Comparable<K>> {
+	private enum Operation {
+		UNION,
+		UNION_ALL,
+		INTERSECT,
+		EXCEPT
+	}
+
+	private Queriable<T> queriable1;
+	private Queriable<T> queriable2;
+
+	private Function<T, K> keyExtractor;
+
+	public SetOperator(Queriable<T> queriable1, Queriable<T> queriable2, Function<T, K> keyExtractor) {
+		this.queriable1 = queriable1;
+		this.queriable2 = queriable2;
+
+		this.keyExtractor = keyExtractor;
+	}
+
+	public Iterable<Record<T>> union() {
+		return () -> new MergeIterator(Operation.UNION);
+	}
+
+	public Iterable<Record<T>> unionAll() {
+		return () -> new MergeIterator(Operation.UNION_ALL);
+	}
+
+	public Iterable<Record<T>> intersect() {
+		return () -> new MergeIterator(Operation.INTERSECT);
+	}
+
+	public Iterable<Record<T>> except() {
+		return () -> new MergeIterator(Operation.EXCEPT);
+	}
+
+	public Iterable<Record<T>> hashUnion() {
+		return () -> {
+			Set<K> emitted = new HashSet<>();
+
+			return new PredicateIterator<T>(concatenation(), t -> emitted.add(keyExtractor.apply(t)), false);
+		};
+	}
+
+	// Input 1 followed by input 2
+	public Iterable<Record<T>> hashUnionAll() {
+		return () -> concatenation();
+	}
+
+	public Iterable<Record<T>> hashIntersect() {
+		return () -> {
+			Set<K> keys2 = keysOf(queriable2);
+			Set<K> emitted = new HashSet<>();
+
+			return new PredicateIterator<T>(queriable1.iterator(), t -> {
+				K key = keyExtractor.apply(t);
+
+				return keys2.contains(key) && emitted.add(key);
+			}, false);
+		};
+	}
+
+	public Iterable<Record<T>> hashExcept() {
+		return () -> {
+			Set<K> keys2 = keysOf(queriable2);
+			Set<K> emitted = new HashSet<>();
+
+			return new PredicateIterator<T>(queriable1.iterator(), t -> {
+				K key = keyExtractor.apply(t);
+
+				return !keys2.contains(key) && emitted.add(key);
+			}, false);
+		};
+	}
+
+	private Iterator<Record<T>> concatenation() {
+		return new FlatteningIterator<Record<T>>(Arrays.<Iterable<Record<T>>>asList(queriable1, queriable2).iterator());
+	}
+
+	private Set<K> keysOf(Queriable<T> queriable) {
+		Set<K> keys = new HashSet<>();
+
+		for(Record<T> record: queriable) {
+			keys.add(keyExtractor.apply(record.getTuple()));
+		}
+
+		return keys;
+	}
+
+	private class MergeIterator implements Iterator<Record<T>> {
+		private Operation operation;
+
+		private Iterator<Record<T>> iterator1;
+		private Iterator<Record<T>> iterator2;
+
+		private Record<T> head1;
+		private Record<T> head2;
+
+		private K key1;
+		private K key2;
+
+		// Last key emitted (or, for except, also the last key excluded)
+		private K lastKey;
+
+		private Record<T> next;
+
+		public MergeIterator(Operation operation) {
+			this.operation = operation;
+
+			this.iterator1 = queriable1.iterator();
+			this.iterator2 = queriable2.iterator();
+
+			advance1();
+			advance2();
+
+			next = findNext();
+		}
+
+		private void advance1() {
+			head1 = iterator1.hasNext() ? iterator1.next() : null;
+			key1 = (head1 != null) ? keyExtractor.apply(head1.getTuple()) : null;
+		}
+
+		private void advance2() {
+			head2 = iterator2.hasNext() ? iterator2.next() : null;
+			key2 = (head2 != null) ? keyExtractor.apply(head2.getTuple()) : null;
+		}
+
+		private boolean isNew(K key) {
+			return (lastKey == null || key.compareTo(lastKey) != 0);
+		}
+
+		private Record<T> findNext() {
+			while(head1 != null || head2 != null) {
+				// Negative: head1 goes first; positive: head2 goes first
+				int compare;
+
+				if(head1 == null) {
+					compare = 1;
+				}
+				else if(head2 == null) {
+					compare = -1;
+				}
+				else {
+					compare = key1.compareTo(key2);
+				}
+
+				Record<T> candidate = null;
+
+				switch(operation) {
+					case UNION_ALL:
+						if(compare <= 0) {
+							candidate = head1;
+							advance1();
+						}
+						else {
+							candidate = head2;
+							advance2();
+						}
+
+						return candidate;
+
+					case UNION:
+						K key;
+
+						if(compare <= 0) {
+							candidate = head1;
+							key = key1;
+							advance1();
+						}
+						else {
+							candidate = head2;
+							key = key2;
+							advance2();
+						}
+
+						if(isNew(key)) {
+							lastKey = key;
+							return candidate;
+						}
+
+						break;
+
+					case INTERSECT:
+						if(head1 == null || head2 == null) {
+							return null;
+						}
+
+						if(compare < 0) {
+							advance1();
+						}
+						else if(compare > 0) {
+							advance2();
+						}
+						else {
+							candidate = head1;
+							K matched = key1;
+							advance1();
+
+							if(isNew(matched)) {
+								lastKey = matched;
+								return candidate;
+							}
+						}
+
+						break;
+
+					case EXCEPT:
+						if(head1 == null) {
+							return null;
+						}
+
+						if(compare > 0) {
+							advance2();
+						}
+						else {
+							candidate = head1;
+							K current = key1;
+							advance1();
+
+							boolean fresh = isNew(current);
+
+							lastKey = current;
+
+							if(compare < 0 && fresh) {
+								return candidate;
+							}
+						}
+
+						break;
+				}
+			}
+
+			return null;
+		}
+
+		public boolean hasNext() {
+			return (next != null);
+		}
+
+		public Record<T> next() {
+			if(next == null) {
+				throw new NoSuchElementException();
+			}
+
+			Record<T> current = next;
+
+			next = findNext();
+
+			return current;
+		}
+	}
+}
@@ -6,17 +6,27 @@
  */
 package edu.davidson.csc353.microdb.sorting;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import edu.davidson.csc353.microdb.files.Tuple;
 import edu.davidson.csc353.microdb.files.Record;
-import edu.davidson.csc353.microdb.files.Relation;
+import edu.davidson.csc353.microdb.files.TemporaryRelation;
+import edu.davidson.csc353.microdb.files.TemporarySpace;
+import edu.davidson.csc353.microdb.files.WritableQueriable;
 
 import edu.davidson.csc353.microdb.files.Queriable;
 
+import edu.davidson.csc353.microdb.operations.SetOperator;
+
+import edu.davidson.csc353.microdb.utils.DecentPQ;
+
 public class Merger<T extends Tuple, K extends Comparable<K>> {
 	private Queriable<T> queriable1;
 	private Queriable<T> queriable2;
@@ -40,95 +50,156 @@ public class Merger<T extends Tuple, K extends Comparable<K>> {
 		this.eliminateDuplicates = eliminateDuplicates;
 	}
 
-	public Queriable<T> merge() {
-		Relation<T> result = new Relation<T>("merge", tupleMaker);
-		result.clear();
+	public TemporaryRelation<T> merge() {
+		TemporaryRelation<T> result = TemporarySpace.create("merge", tupleMaker);
 
 		merge(queriable1, queriable2, result, keyExtractor, eliminateDuplicates);
 
 		return result;
 	}
 
-	public static <T extends Tuple, K extends Comparable<K>> void merge(Queriable<T> relation1, Queriable<T> relation2, Relation<T> relation3, Function<T, K> keyExtractor, boolean eliminateDuplicates) {
-		Iterator<Record<T>> iterator1 = relation1.iterator();
-		Iterator<Record<T>> iterator2 = relation2.iterator();
+	public static <T extends Tuple, K extends Comparable<K>> void merge(Queriable<T> relation1, Queriable<T> relation2, WritableQueriable<T> relation3, Function<T, K> keyExtractor, boolean eliminateDuplicates) {
+		SetOperator<T, K> operator = new SetOperator<>(relation1, relation2, keyExtractor);
 
-		Record<T> r1 = null;
-		Record<T> r2 = null;
+		for(Record<T> record: (eliminateDuplicates ? operator.union() : operator.unionAll())) {
+			relation3.appendRecord(record);
+		}
+	}
 
-		K key1 = null;
-		K key2 = null;
+	// Merges any number of inputs ordered by key in a single pass. The heap holds the
+	// current record of each input; ties go to the earlier input, so the merge is stable.
+	public static <T extends Tuple, K extends Comparable<K>> void merge(List<? extends Queriable<T>> inputs, WritableQueriable<T> output, Function<T, K> keyExtractor, boolean eliminateDuplicates) {
+		ArrayList<Iterator<Record<T>>> iterators = new ArrayList<>(inputs.size());
 
-		K keyLastAppended = null;
+		for(Queriable<T> input: inputs) {
+			iterators.add(input.iterator());
+		}
 
-		while(iterator1.hasNext() && iterator2.hasNext()) {
-			if(r1 == null) {
-				r1 = iterator1.next();
-			}
+		mergeIterators(iterators, output, keyExtractor, eliminateDuplicates);
+	}
 
-			if(r2 == null) {
-				r2 = iterator2.next();
-			}
+	public static <T extends Tuple, K extends Comparable<K>> void mergeIterators(List<Iterator<Record<T>>> inputs, WritableQueriable<T> output, Function<T, K> keyExtractor, boolean eliminateDuplicates) {
+		Iterator<Record<T>> iterator = mergeIterator(inputs, keyExtractor, eliminateDuplicates);
+
+		while(iterator.hasNext()) {
+			output.appendRecord(iterator.next());
+		}
+	}
+
+	// The same merge, producing records as they are requested instead of writing them out
+	public static <T extends Tuple, K extends Comparable<K>> Iterator<Record<T>> mergeIterator(List<Iterator<Record<T>>> inputs, Function<T, K> keyExtractor, boolean eliminateDuplicates) {
+		return new MergeIterator<T, K>(inputs, keyExtractor, eliminateDuplicates);
+	}
+
+	private static class MergeIterator<T extends Tuple, K extends Comparable<K>> implements Iterator<Record<T>> {
+		private DecentPQ<Head<T, K>> heap;
+
+		private boolean eliminateDuplicates;
+
+		private K keyLastReturned;
+		private long prefixLastReturned;
 
-			key1 = keyExtractor.apply(r1.getTuple());
-			key2 = keyExtractor.apply(r2.getTuple());
+		public MergeIterator(List<Iterator<Record<T>>> inputs, Function<T, K> keyExtractor, boolean eliminateDuplicates) {
+			this.heap = new DecentPQ<>();
 
-			if(key1.compareTo(key2) < 0) {
-				if(!eliminateDuplicates || (keyLastAppended == null || key1.compareTo(keyLastAppended) != 0)) {
-					relation3.appendRecord(r1);
-					keyLastAppended = key1;
+			for(int i = 0; i < inputs.size(); i++) {
+				Head<T, K> head = new Head<T, K>(inputs.get(i), i, keyExtractor);
+
+				if(head.advance()) {
+					heap.add(head);
 				}
-				r1 = null;
 			}
-			else if(key1.compareTo(key2) > 0) {
-				if(!eliminateDuplicates || (keyLastAppended == null || key2.compareTo(keyLastAppended) != 0)) {
-					relation3.appendRecord(r2);
-					keyLastAppended = key2;
+
+			this.eliminateDuplicates = eliminateDuplicates;
+
+			this.keyLastReturned = null;
+			this.prefixLastReturned = 0;
+		}
+
+		// Drops duplicates of the last record returned from the top of the heap
+		private void skipDuplicates() {
+			while(eliminateDuplicates && keyLastReturned != null && heap.size() > 0) {
+				Head<T, K> head = heap.peek();
+
+				if(NormalizedKeys.compare(head.prefix, head.key, prefixLastReturned, keyLastReturned) != 0) {
+					return;
 				}
-				r2 = null;
+
+				advance(head);
+			}
+		}
+
+		private void advance(Head<T, K> head) {
+			if(head.advance()) {
+				heap.increaseKey(head);
 			}
 			else {
-				if(!eliminateDuplicates || (keyLastAppended == null || key1.compareTo(keyLastAppended) != 0)) {
-					relation3.appendRecord(r1);
-					keyLastAppended = key1;
-				}
-				r1 = null;
-				r2 = null;
+				heap.removeMin();
 			}
 		}
 
-		if(r1 != null) {
-			if(!eliminateDuplicates || (keyLastAppended == null || key1.compareTo(keyLastAppended) != 0)) {
-				relation3.appendRecord(r1);
-				keyLastAppended = key1;
-			}
+		public boolean hasNext() {
+			skipDuplicates();
+
+			return (heap.size() > 0);
 		}
 
-		if(r2 != null) {
-			if(!eliminateDuplicates || (keyLastAppended == null || key2.compareTo(keyLastAppended) != 0)) {
-				relation3.appendRecord(r2);
-				keyLastAppended = key2;
+		public Record<T> next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
 			}
+
+			Head<T, K> head = heap.peek();
+
+			Record<T> record = head.record;
+
+			keyLastReturned = head.key;
+			prefixLastReturned = head.prefix;
+
+			advance(head);
+
+			return record;
 		}
+	}
+
+	private static class Head<T extends Tuple, K extends Comparable<K>> implements Comparable<Head<T, K>> {
+		private Iterator<Record<T>> iterator;
+		private int input;
+
+		private Function<T, K> keyExtractor;
+
+		public Record<T> record;
+		public K key;
+		public long prefix;
 
-		while(iterator1.hasNext()) {
-			r1 = iterator1.next();
-			key1 = keyExtractor.apply(r1.getTuple());
+		public Head(Iterator<Record<T>> iterator, int input, Function<T, K> keyExtractor) {
+			this.iterator = iterator;
+			this.input = input;
 
-			if(!eliminateDuplicates || (keyLastAppended == null || key1.compareTo(keyLastAppended) != 0)) {
-				relation3.appendRecord(r1);
-				keyLastAppended = key1;
+			this.keyExtractor = keyExtractor;
+		}
+
+		// Moves to the next record of the input, if any
+		public boolean advance() {
+			if(!iterator.hasNext()) {
+				return false;
 			}
+
+			record = iterator.next();
+			key = keyExtractor.apply(record.getTuple());
+			prefix = NormalizedKeys.prefix(key);
+
+			return true;
 		}
 
-		while(iterator2.hasNext()) {
-			r2 = iterator1.next();
-			key2 = keyExtractor.apply(r1.getTuple());
+		public int compareTo(Head<T, K> other) {
+			int keyCompare = NormalizedKeys.compare(prefix, key, other.prefix, other.key);
 
-			if(!eliminateDuplicates || (keyLastAppended == null || key2.compareTo(keyLastAppended) != 0)) {
-				relation3.appendRecord(r2);
-				keyLastAppended = key2;
+			if(keyCompare != 0) {
+				return keyCompare;
 			}
+
+			return Integer.compare(input, other.input);
 		}
 	}
 }
@@ -0,0 +1,57 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.sorting;
+
+// Encodes a key, once, into a 64-bit prefix that orders like the key when
+// compared as an unsigned number. Integers, longs and doubles are encoded
+// exactly; strings keep their first four characters. Keys with equal
+// prefixes (and keys of other types, which all get prefix 0) are compared in full.
+public class NormalizedKeys {
+	public static long prefix(Object key) {
+		if(key instanceof Integer) {
+			// Flipping the sign bit makes negative numbers sort first as unsigned
+			return ((long) ((Integer) key ^ Integer.MIN_VALUE)) << 32;
+		}
+
+		if(key instanceof Long) {
+			return (Long) key ^ Long.MIN_VALUE;
+		}
+
+		if(key instanceof Double) {
+			long bits = Double.doubleToLongBits((Double) key);
+
+			// Negative numbers have all bits flipped, so larger magnitudes sort first
+			return (bits < 0) ? ~bits : (bits ^ Long.MIN_VALUE);
+		}
+
+		if(key instanceof String) {
+			String string = (String) key;
+
+			long prefix = 0;
+
+			// Characters are compared as unsigned 16-bit values, as in String.compareTo;
+			// shorter strings are padded with zeros
+			for(int i = 0; i < 4; i++) {
+				prefix = (prefix << 16) | ((i < string.length()) ? string.charAt(i) : 0);
+			}
+
+			return prefix;
+		}
+
+		return 0;
+	}
+
+	public static <K extends Comparable<K>> int compare(long prefix1, K key1, long prefix2, K key2) {
+		int prefixCompare = Long.compareUnsigned(prefix1, prefix2);
+
+		if(prefixCompare != 0) {
+			return prefixCompare;
+		}
+
+		return key1.compareTo(key2);
+	}
+}
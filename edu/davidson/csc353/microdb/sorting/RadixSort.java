@@ -0,0 +1,76 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.sorting;
+
+import java.util.Arrays;
+
+// LSD radix sort of 64-bit keys, compared as unsigned numbers (as the prefixes of
+// NormalizedKeys). One counting pass per byte, starting from the lowest; a byte
+// that is the same in every key does not change the order, and its pass is skipped.
+// Each pass is stable, so equal keys keep their original order.
+public class RadixSort {
+	private static final int BITS = 8;
+	private static final int RADIX = 1 << BITS;
+	private static final int MASK = RADIX - 1;
+
+	// The permutation that sorts the keys: position i of the result holds the
+	// index (in the original array) of the i-th smallest key. The keys are not modified.
+	public static int[] order(long[] keys) {
+		int n = keys.length;
+
+		int[] order = new int[n];
+		int[] orderBuffer = new int[n];
+
+		long[] sortedKeys = keys.clone();
+		long[] keysBuffer = new long[n];
+
+		for(int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+
+		int[] counts = new int[RADIX];
+
+		for(int shift = 0; shift < Long.SIZE && n > 0; shift += BITS) {
+			Arrays.fill(counts, 0);
+
+			for(int i = 0; i < n; i++) {
+				counts[(int) (sortedKeys[i] >>> shift) & MASK]++;
+			}
+
+			if(counts[(int) (sortedKeys[0] >>> shift) & MASK] == n) {
+				continue;
+			}
+
+			// Counts become the first position of each digit
+			int position = 0;
+
+			for(int digit = 0; digit < RADIX; digit++) {
+				int count = counts[digit];
+
+				counts[digit] = position;
+				position += count;
+			}
+
+			for(int i = 0; i < n; i++) {
+				int target = counts[(int) (sortedKeys[i] >>> shift) & MASK]++;
+
+				keysBuffer[target] = sortedKeys[i];
+				orderBuffer[target] = order[i];
+			}
+
+			long[] swapKeys = sortedKeys;
+			sortedKeys = keysBuffer;
+			keysBuffer = swapKeys;
+
+			int[] swapOrder = order;
+			order = orderBuffer;
+			orderBuffer = swapOrder;
+		}
+
+		return order;
+	}
+}
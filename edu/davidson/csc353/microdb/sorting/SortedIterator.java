@@ -0,0 +1,66 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.sorting;
+
+import java.util.List;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.TemporaryRelation;
+
+// Output of a sort whose last merge pass is read directly by the consumer.
+// The runs being merged are closed once the iterator is exhausted, or when
+// it is closed (e.g., by a consumer that stops early).
+public class SortedIterator<T extends Tuple> implements Iterator<Record<T>>, AutoCloseable {
+	private Iterator<Record<T>> iterator;
+	private List<TemporaryRelation<T>> runs;
+
+	private boolean closed;
+
+	public SortedIterator(Iterator<Record<T>> iterator, List<TemporaryRelation<T>> runs) {
+		this.iterator = iterator;
+		this.runs = runs;
+
+		this.closed = false;
+	}
+
+	public boolean hasNext() {
+		if(closed) {
+			return false;
+		}
+
+		if(!iterator.hasNext()) {
+			close();
+			return false;
+		}
+
+		return true;
+	}
+
+	public Record<T> next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return iterator.next();
+	}
+
+	public void close() {
+		if(closed) {
+			return;
+		}
+
+		closed = true;
+
+		for(TemporaryRelation<T> run: runs) {
+			run.close();
+		}
+	}
+}
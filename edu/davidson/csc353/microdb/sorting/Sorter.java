@@ -6,19 +6,50 @@
  */
 package edu.davidson.csc353.microdb.sorting;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
+
+import java.util.Iterator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Block;
 import edu.davidson.csc353.microdb.files.Record;
-import edu.davidson.csc353.microdb.files.Relation;
+import edu.davidson.csc353.microdb.files.TemporaryRelation;
+import edu.davidson.csc353.microdb.files.TemporarySpace;
 
 import edu.davidson.csc353.microdb.files.Queriable;
+import edu.davidson.csc353.microdb.files.BlockQueriable;
+
+import edu.davidson.csc353.microdb.operations.PredicateIterator;
+
+import edu.davidson.csc353.microdb.utils.DecentPQ;
+import edu.davidson.csc353.microdb.utils.MemoryGrant;
+import edu.davidson.csc353.microdb.utils.MemoryManager;
 
 public class Sorter<T extends Tuple, K extends Comparable<K>> {
-	public static final int BUFFER_SIZE = 1024;
+	// Memory asked from the MemoryManager to hold records while making runs
+	public static final long MEMORY_BUDGET = 1 << 16;
+
+	// In parallel mode, the memory is split among the workers, down to this many bytes each
+	public static final long MINIMUM_CHUNK_MEMORY = 1 << 12;
+
+	// Smaller buffers are sorted by comparisons, even with integer keys
+	public static final int RADIX_SORT_MINIMUM = 64;
+
+	// The parallel merge samples about this many blocks of each run per worker to pick its splitters
+	public static final int SAMPLES_PER_WORKER = 8;
+
+	// Inputs with at most this many natural runs (and no more than the fan-in) are merged
+	// directly, skipping run generation; the scan looking for them stops past this many
+	public static final int NATURAL_RUN_LIMIT = 16;
 
 	private Queriable<T> queriable;
 	private Supplier<T> tupleMaker;
@@ -26,106 +57,752 @@ public class Sorter<T extends Tuple, K extends Comparable<K>> {
 
 	private boolean eliminateDuplicates;
 
+	private boolean replacementSelection;
+
+	private boolean detectOrder;
+
+	private boolean radixSort;
+
+	private boolean compressRuns;
+
+	private int fanIn;
+
+	private ForkJoinPool pool;
+
+	private long memoryBudget;
+
+	// Open only while sorting
+	private MemoryGrant grant;
+
+	private int numberRuns;
+
 	public Sorter(Queriable<T> queriable, Supplier<T> tupleMaker, Function<T, K> keyExtractor) {
 		this.queriable = queriable;
 		this.tupleMaker = tupleMaker;
 		this.keyExtractor = keyExtractor;
 
 		this.eliminateDuplicates = false;
+
+		this.replacementSelection = true;
+
+		this.detectOrder = true;
+
+		this.radixSort = true;
+
+		this.compressRuns = false;
+
+		this.fanIn = 0;
+
+		this.pool = null;
+
+		this.memoryBudget = MEMORY_BUDGET;
 	}
 
 	public void setEliminateDuplicates(boolean eliminateDuplicates) {
 		this.eliminateDuplicates = eliminateDuplicates;
 	}
 
-	public Queriable<T> sort() {
-		int lastRun = 0;
+	// If false, runs are made by sorting a full buffer at a time
+	public void setReplacementSelection(boolean replacementSelection) {
+		this.replacementSelection = replacementSelection;
+	}
+
+	// If true (the default), a first pass looks for existing order in the input, and
+	// stops as soon as the input has more than NATURAL_RUN_LIMIT (or fanIn, if lower)
+	// natural runs (maximal ordered stretches of records). Inputs with fewer are merged
+	// from those runs directly. Inputs that can only be read once (e.g., result sets,
+	// which are not BlockQueriable) are never checked.
+	public void setDetectOrder(boolean detectOrder) {
+		this.detectOrder = detectOrder;
+	}
+
+	// If true (the default), buffers whose keys are all Integers or Longs are
+	// radix sorted on their normalized prefixes, which are exact for these types
+	public void setRadixSort(boolean radixSort) {
+		this.radixSort = radixSort;
+	}
+
+	// If true, runs that spill to disk (and the sorted output, if it does) are written
+	// in compressed blocks, which hold more records each; merges read them as usual.
+	// Each compressed block has a fixed overhead of a few dozen bytes, so this pays
+	// off with blocks of a few hundred bytes or more.
+	public void setCompressRuns(boolean compressRuns) {
+		this.compressRuns = compressRuns;
+	}
+
+	// With a pool, runs are sorted and merged by its workers; null (the default)
+	// sorts on the calling thread. The output is the same in both modes.
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	// Most memory, in bytes, the sort asks for. It may get less from the MemoryManager,
+	// and give memory back while it runs if other operators need their share.
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	// Zero (the default) derives the fan-in from the memory available
+	public void setFanIn(int fanIn) {
+		this.fanIn = fanIn;
+	}
+
+	// During the merge, the memory that held records holds one block
+	// per input run, plus one block for the output
+	public int getFanIn() {
+		if(fanIn > 0) {
+			return Math.max(2, fanIn);
+		}
+
+		long memory = (grant == null) ? memoryBudget : grant.getLimit();
+
+		return (int) Math.max(2, Math.min(Integer.MAX_VALUE, memory / Block.SIZE - 1));
+	}
+
+	// Runs and merge passes live in the TemporarySpace, so concurrent sorts do not
+	// collide, and small inputs are sorted without touching the disk. The result is
+	// always a new relation, even if the input is already in order: ensureSorted()
+	// returns such an input as-is, without copying it.
+	public TemporaryRelation<T> sort() {
+		List<Iterator<Record<T>>> naturalRuns = findNaturalRuns();
+
+		if(naturalRuns != null) {
+			TemporaryRelation<T> result = createRun();
+
+			Merger.mergeIterators(naturalRuns, result, keyExtractor, eliminateDuplicates);
+
+			return result;
+		}
+
+		ArrayList<TemporaryRelation<T>> runs = makeRunsAndPasses();
+
+		if(runs.size() == 1) {
+			return runs.get(0);
+		}
+
+		if(pool != null) {
+			return mergePartitioned(runs);
+		}
+
+		return mergeGroup(runs);
+	}
+
+	// Like sort(), but the last merge pass is not written out: it runs as the
+	// records are read. Suits consumers that read the sorted output once (e.g.,
+	// a merge join or a streaming aggregation). The last pass is always sequential.
+	public SortedIterator<T> sortIterator() {
+		List<Iterator<Record<T>>> naturalRuns = findNaturalRuns();
+
+		if(naturalRuns != null) {
+			return new SortedIterator<T>(Merger.mergeIterator(naturalRuns, keyExtractor, eliminateDuplicates), new ArrayList<>());
+		}
+
+		ArrayList<TemporaryRelation<T>> runs = makeRunsAndPasses();
+
+		ArrayList<Iterator<Record<T>>> iterators = new ArrayList<>(runs.size());
+
+		for(TemporaryRelation<T> run: runs) {
+			iterators.add(run.iterator());
+		}
+
+		return new SortedIterator<T>(Merger.mergeIterator(iterators, keyExtractor, eliminateDuplicates), runs);
+	}
+
+	// The input itself if it is already in order (and, when eliminating duplicates, has
+	// no duplicate keys), otherwise the result of sort(). Only in the second case is
+	// the result a new relation the caller has to close.
+	public Queriable<T> ensureSorted() {
+		if(detectOrder && queriable instanceof BlockQueriable) {
+			ArrayList<NaturalRun> naturalRuns = scanNaturalRuns(1);
+
+			if(naturalRuns != null && (!eliminateDuplicates || naturalRuns.isEmpty() || naturalRuns.get(0).strictlyOrdered)) {
+				numberRuns = naturalRuns.size();
+
+				return queriable;
+			}
+		}
+
+		return sort();
+	}
+
+	private class NaturalRun {
+		public int blockNumber;
+		public int recordNumber;
 
-		lastRun = makeRuns();
-		lastRun = makeMerges(lastRun);
+		public long length;
 
-		Relation<T> relation;
-		
-		relation = new Relation<T>("run" + lastRun, tupleMaker);
-		relation.rename("sorted");
+		public boolean strictlyOrdered;
 
-		relation = new Relation<T>("sorted", tupleMaker);
+		public NaturalRun(int blockNumber, int recordNumber) {
+			this.blockNumber = blockNumber;
+			this.recordNumber = recordNumber;
 
-		return relation;
+			this.length = 0;
+
+			this.strictlyOrdered = true;
+		}
 	}
 
-	private int makeRuns() {
-		ArrayList<Record<T>> buffer = new ArrayList<>(BUFFER_SIZE);
+	// Natural runs of the input, or null if it has more than limit of them. The scan stops
+	// at the start of run limit + 1, so unordered input costs about 2 * limit record reads;
+	// input with a few long runs, though, can be read up to its end before being rejected.
+	private ArrayList<NaturalRun> scanNaturalRuns(int limit) {
+		ArrayList<NaturalRun> naturalRuns = new ArrayList<>();
 
-		int lastRun = 0;
+		NaturalRun current = null;
+
+		K lastKey = null;
+		long lastPrefix = 0;
 
 		for(Record<T> record: queriable) {
-			if(buffer.size() < BUFFER_SIZE) {
-				buffer.add(record);
+			K key = keyExtractor.apply(record.getTuple());
+			long prefix = NormalizedKeys.prefix(key);
+
+			int compare = (current == null) ? 1 : NormalizedKeys.compare(lastPrefix, lastKey, prefix, key);
+
+			if(compare > 0) {
+				if(naturalRuns.size() == limit) {
+					return null;
+				}
+
+				current = new NaturalRun(record.getBlockNumber(), record.getRecordNumber());
+				naturalRuns.add(current);
+			}
+			else if(compare == 0) {
+				current.strictlyOrdered = false;
+			}
+
+			current.length++;
+
+			lastKey = key;
+			lastPrefix = prefix;
+		}
+
+		return naturalRuns;
+	}
+
+	// Iterators over the natural runs of the input, in input order, if there are few
+	// enough to merge in a single pass; null if the input has to go through runs
+	private List<Iterator<Record<T>>> findNaturalRuns() {
+		if(!detectOrder || !(queriable instanceof BlockQueriable)) {
+			return null;
+		}
+
+		ArrayList<NaturalRun> naturalRuns = scanNaturalRuns(Math.min(NATURAL_RUN_LIMIT, getFanIn()));
+
+		if(naturalRuns == null) {
+			return null;
+		}
+
+		numberRuns = naturalRuns.size();
+
+		ArrayList<Iterator<Record<T>>> iterators = new ArrayList<>(naturalRuns.size());
+
+		for(NaturalRun naturalRun: naturalRuns) {
+			long[] remaining = { naturalRun.length };
+
+			Iterator<Record<T>> iterator = queriable.iterator(naturalRun.blockNumber, naturalRun.recordNumber);
+
+			iterators.add(new PredicateIterator<T>(iterator, t -> remaining[0]-- > 0, true));
+		}
+
+		return iterators;
+	}
+
+	// Makes the runs, and merges them until at most fanIn are left
+	private ArrayList<TemporaryRelation<T>> makeRunsAndPasses() {
+		grant = MemoryManager.register("sort", memoryBudget);
+
+		try {
+			ArrayList<TemporaryRelation<T>> runs;
+
+			if(pool != null) {
+				runs = makeRunsParallel();
+			}
+			else {
+				runs = replacementSelection ? makeRunsReplacement() : makeRuns();
+			}
+
+			numberRuns = runs.size();
+
+			return makePasses(runs, getFanIn());
+		}
+		finally {
+			grant.close();
+			grant = null;
+		}
+	}
+
+	// Number of initial runs made by the last sort
+	public int getNumberRuns() {
+		return numberRuns;
+	}
+
+	private TemporaryRelation<T> createRun() {
+		TemporaryRelation<T> run = TemporarySpace.create("run", tupleMaker);
+
+		run.setCompressed(compressRuns);
+
+		return run;
+	}
+
+	// Memory accounted for a record held by the sort: its size on a block, plus its slot
+	private static long sizeOf(Record<?> record) {
+		return record.getSize() + Integer.BYTES;
+	}
+
+	// An empty buffer always takes the record, even if no memory is granted
+	private boolean admit(Record<T> record, boolean empty) {
+		long size = sizeOf(record);
+
+		if(grant.reserve(size)) {
+			return true;
+		}
+
+		if(empty) {
+			grant.forceReserve(size);
+			return true;
+		}
+
+		return false;
+	}
+
+	// The key is extracted and normalized once per record
+	private class RunEntry implements Comparable<RunEntry> {
+		public Record<T> record;
+		public K key;
+		public long prefix;
+
+		public int run;
+		public long sequence;
+
+		public RunEntry(Record<T> record, K key, int run, long sequence) {
+			this.record = record;
+			this.key = key;
+			this.prefix = NormalizedKeys.prefix(key);
+
+			this.run = run;
+			this.sequence = sequence;
+		}
+
+		// By run first: records held back for the next run sink below the current one
+		public int compareTo(RunEntry other) {
+			if(run != other.run) {
+				return Integer.compare(run, other.run);
+			}
+
+			int keyCompare = NormalizedKeys.compare(prefix, key, other.prefix, other.key);
+
+			if(keyCompare != 0) {
+				return keyCompare;
+			}
+
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	// Replacement selection: a heap of records repeatedly writes out its smallest
+	// record, and takes in input records while the grant has memory for them. An
+	// incoming record smaller than the last one written cannot join the current run,
+	// and is tagged for the next one. Runs average twice the memory on random input,
+	// and nearly sorted input becomes a single run. If memory is reclaimed, the heap
+	// shrinks by writing records out without taking new ones in.
+	//
+	// Equal keys never go back to an earlier run, so merging runs in order is stable.
+	private ArrayList<TemporaryRelation<T>> makeRunsReplacement() {
+		DecentPQ<RunEntry> heap = new DecentPQ<>();
+
+		ArrayList<TemporaryRelation<T>> runs = new ArrayList<>();
+
+		TemporaryRelation<T> currentRun = null;
+
+		RunEntry lastWritten = null;
+		RunEntry lastAppended = null;
+
+		long sequence = 0;
+
+		Iterator<Record<T>> iterator = queriable.iterator();
+
+		Record<T> incoming = iterator.hasNext() ? iterator.next() : null;
+
+		while(incoming != null || heap.size() > 0) {
+			if(incoming != null && admit(incoming, heap.size() == 0)) {
+				RunEntry entry = new RunEntry(incoming, keyExtractor.apply(incoming.getTuple()), 0, sequence++);
+
+				if(lastWritten != null) {
+					entry.run = lastWritten.run;
+
+					if(NormalizedKeys.compare(entry.prefix, entry.key, lastWritten.prefix, lastWritten.key) < 0) {
+						entry.run++;
+					}
+				}
+
+				heap.add(entry);
+
+				incoming = iterator.hasNext() ? iterator.next() : null;
 				continue;
 			}
 
-			sortAndSave(buffer, lastRun);
+			RunEntry smallest = heap.removeMin();
+
+			grant.release(sizeOf(smallest.record));
+
+			if(smallest.run == runs.size()) {
+				currentRun = createRun();
+				runs.add(currentRun);
+
+				lastAppended = null;
+			}
+
+			if(!eliminateDuplicates || lastAppended == null || NormalizedKeys.compare(smallest.prefix, smallest.key, lastAppended.prefix, lastAppended.key) != 0) {
+				currentRun.appendRecord(smallest.record);
+				lastAppended = smallest;
+			}
+
+			lastWritten = smallest;
+		}
+
+		if(runs.isEmpty()) {
+			runs.add(createRun());
+		}
+
+		return runs;
+	}
+
+	// A buffer is filled while the grant has memory for its records, then sorted and saved
+	private ArrayList<TemporaryRelation<T>> makeRuns() {
+		ArrayList<Record<T>> buffer = new ArrayList<>();
+		long bufferMemory = 0;
+
+		ArrayList<TemporaryRelation<T>> runs = new ArrayList<>();
+
+		for(Record<T> record: queriable) {
+			if(!admit(record, buffer.isEmpty())) {
+				runs.add(sortAndSave(buffer));
+
+				buffer.clear();
+
+				grant.release(bufferMemory);
+				bufferMemory = 0;
+
+				admit(record, true);
+			}
+
+			buffer.add(record);
+			bufferMemory += sizeOf(record);
+		}
+
+		runs.add(sortAndSave(buffer));
+
+		grant.release(bufferMemory);
+
+		return runs;
+	}
+
+	// The input is read on the calling thread, which hands each full chunk to the pool
+	// to be sorted and saved. The memory of a chunk is released once its run is saved,
+	// and the reader waits for the oldest pending chunk when the grant has no memory
+	// left. Replacement selection is sequential, so it is not used in this mode.
+	private ArrayList<TemporaryRelation<T>> makeRunsParallel() {
+		long chunkMemory = Math.max(MINIMUM_CHUNK_MEMORY, grant.getLimit() / pool.getParallelism());
+
+		ArrayList<ForkJoinTask<TemporaryRelation<T>>> tasks = new ArrayList<>();
+
+		ArrayDeque<ForkJoinTask<TemporaryRelation<T>>> pending = new ArrayDeque<>();
+		ArrayDeque<Long> pendingMemory = new ArrayDeque<>();
+
+		ArrayList<Record<T>> buffer = new ArrayList<>();
+		long bufferMemory = 0;
+
+		for(Record<T> record: queriable) {
+			while(!admit(record, buffer.isEmpty() && pending.isEmpty())) {
+				if(pending.isEmpty()) {
+					submitChunk(buffer, bufferMemory, tasks, pending, pendingMemory);
+
+					buffer = new ArrayList<>();
+					bufferMemory = 0;
+				}
+
+				pending.remove().join();
+				grant.release(pendingMemory.remove());
+			}
 
-			buffer.clear();
 			buffer.add(record);
+			bufferMemory += sizeOf(record);
+
+			if(bufferMemory >= chunkMemory) {
+				submitChunk(buffer, bufferMemory, tasks, pending, pendingMemory);
 
-			lastRun++;
+				buffer = new ArrayList<>();
+				bufferMemory = 0;
+			}
 		}
 
-		sortAndSave(buffer, lastRun);
+		if(!buffer.isEmpty() || tasks.isEmpty()) {
+			submitChunk(buffer, bufferMemory, tasks, pending, pendingMemory);
+		}
 
-		return lastRun;
+		ArrayList<TemporaryRelation<T>> runs = new ArrayList<>(tasks.size());
+
+		for(ForkJoinTask<TemporaryRelation<T>> task: tasks) {
+			runs.add(task.join());
+		}
+
+		while(!pendingMemory.isEmpty()) {
+			grant.release(pendingMemory.remove());
+		}
+
+		return runs;
 	}
 
-	private void sortAndSave(ArrayList<Record<T>> buffer, int run) {
-		buffer.sort((r1, r2) -> {
-			K key1 = keyExtractor.apply(r1.getTuple());
-			K key2 = keyExtractor.apply(r2.getTuple());
+	private void submitChunk(ArrayList<Record<T>> chunk, long chunkMemory, ArrayList<ForkJoinTask<TemporaryRelation<T>>> tasks, ArrayDeque<ForkJoinTask<TemporaryRelation<T>>> pending, ArrayDeque<Long> pendingMemory) {
+		ForkJoinTask<TemporaryRelation<T>> task = pool.submit(() -> sortAndSave(chunk));
 
-			return key1.compareTo(key2);
-		});
+		tasks.add(task);
+
+		pending.add(task);
+		pendingMemory.add(chunkMemory);
+	}
 
-		Relation<T> currentRun = new Relation<T>("run" + run, tupleMaker);
-		currentRun.clear();
+	private TemporaryRelation<T> sortAndSave(ArrayList<Record<T>> buffer) {
+		ArrayList<RunEntry> entries = new ArrayList<>(buffer.size());
 
-		for(Record<T> sortedRecord: buffer) {
-			currentRun.appendRecord(sortedRecord);
+		for(Record<T> record: buffer) {
+			entries.add(new RunEntry(record, keyExtractor.apply(record.getTuple()), 0, entries.size()));
 		}
 
-		currentRun.save();
+		if(radixSort && hasIntegerKeys(entries)) {
+			entries = radixSort(entries);
+		}
+		else {
+			entries.sort(null);
+		}
+
+		TemporaryRelation<T> currentRun = createRun();
+
+		RunEntry lastAppended = null;
+
+		for(RunEntry entry: entries) {
+			if(!eliminateDuplicates || lastAppended == null || NormalizedKeys.compare(entry.prefix, entry.key, lastAppended.prefix, lastAppended.key) != 0) {
+				currentRun.appendRecord(entry.record);
+				lastAppended = entry;
+			}
+		}
+
+		return currentRun;
 	}
 
-	private int makeMerges(int lastRun) {
-		if(lastRun == 0) {
-			return 0;
+	private boolean hasIntegerKeys(ArrayList<RunEntry> entries) {
+		if(entries.size() < RADIX_SORT_MINIMUM) {
+			return false;
 		}
 
-		int currentRun = lastRun + 1;
+		Class<?> keyClass = entries.get(0).key.getClass();
 
-		for(int i = 0; i <= currentRun - 2; i += 2) {
-			Relation<T> relation1 = new Relation<T>("run" + i, tupleMaker);
-			Relation<T> relation2 = new Relation<T>("run" + (i + 1), tupleMaker);
+		if(keyClass != Integer.class && keyClass != Long.class) {
+			return false;
+		}
 
-			Relation<T> relation3 = new Relation<T>("run" + currentRun, tupleMaker);
-			relation3.clear();
+		for(RunEntry entry: entries) {
+			if(entry.key.getClass() != keyClass) {
+				return false;
+			}
+		}
 
-			Merger.merge(relation1, relation2, relation3, keyExtractor, eliminateDuplicates);
+		return true;
+	}
 
-			relation1.delete();
-			relation2.delete();
+	// Sorts the prefixes in a primitive array, and reorders the entries by the resulting permutation
+	private ArrayList<RunEntry> radixSort(ArrayList<RunEntry> entries) {
+		long[] prefixes = new long[entries.size()];
+
+		for(int i = 0; i < prefixes.length; i++) {
+			prefixes[i] = entries.get(i).prefix;
+		}
+
+		int[] order = RadixSort.order(prefixes);
+
+		ArrayList<RunEntry> sorted = new ArrayList<>(order.length);
+
+		for(int index: order) {
+			sorted.add(entries.get(index));
+		}
+
+		return sorted;
+	}
+
+	// Each pass merges groups of up to fanIn consecutive runs with a heap, so
+	// runs stay in input order and equal keys keep their original order.
+	// In parallel mode, the groups of a pass are merged concurrently, and the
+	// last pass (made by the caller) is split by key ranges instead.
+	private ArrayList<TemporaryRelation<T>> makePasses(ArrayList<TemporaryRelation<T>> runs, int fanIn) {
+		while(runs.size() > fanIn) {
+			ArrayList<Callable<TemporaryRelation<T>>> merges = new ArrayList<>();
+
+			for(int i = 0; i < runs.size(); i += fanIn) {
+				List<TemporaryRelation<T>> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+
+				merges.add(() -> mergeGroup(group));
+			}
+
+			runs = invoke(merges);
+		}
+
+		return runs;
+	}
+
+	private TemporaryRelation<T> mergeGroup(List<TemporaryRelation<T>> group) {
+		if(group.size() == 1) {
+			return group.get(0);
+		}
+
+		TemporaryRelation<T> output = createRun();
+
+		Merger.merge(group, output, keyExtractor, eliminateDuplicates);
+
+		for(TemporaryRelation<T> run: group) {
+			run.close();
+		}
+
+		return output;
+	}
+
+	// Results in the order of the tasks
+	private ArrayList<TemporaryRelation<T>> invoke(List<Callable<TemporaryRelation<T>>> tasks) {
+		ArrayList<TemporaryRelation<T>> results = new ArrayList<>(tasks.size());
+
+		if(pool == null) {
+			for(Callable<TemporaryRelation<T>> task: tasks) {
+				try {
+					results.add(task.call());
+				}
+				catch(Exception exception) {
+					throw new RuntimeException("Error merging runs", exception);
+				}
+			}
+
+			return results;
+		}
+
+		ArrayList<ForkJoinTask<TemporaryRelation<T>>> submitted = new ArrayList<>(tasks.size());
+
+		for(Callable<TemporaryRelation<T>> task: tasks) {
+			submitted.add(pool.submit(task));
+		}
+
+		for(ForkJoinTask<TemporaryRelation<T>> task: submitted) {
+			results.add(task.join());
+		}
+
+		return results;
+	}
+
+	// Splitters are sampled from the first keys of evenly spaced blocks of every run, so
+	// sampling reads a bounded number of blocks. Each worker merges one key range of all
+	// runs, and the result is the concatenation of the ranges, in order (not a copy).
+	// All records with the same key fall in the same range, so the output is still stable.
+	private TemporaryRelation<T> mergePartitioned(ArrayList<TemporaryRelation<T>> runs) {
+		ArrayList<BlockQueriable<T>> readers = new ArrayList<>(runs.size());
+		ArrayList<K> samples = new ArrayList<>();
+
+		for(TemporaryRelation<T> run: runs) {
+			BlockQueriable<T> reader = run.openReader();
+
+			int numberBlocks = reader.getNumberBlocks();
+			int stride = Math.max(1, numberBlocks / (pool.getParallelism() * SAMPLES_PER_WORKER));
+
+			for(int blockNumber = 0; blockNumber < numberBlocks; blockNumber += stride) {
+				samples.add(keyExtractor.apply(reader.get(blockNumber).getRecord(0).getTuple()));
+			}
+
+			readers.add(reader);
+		}
+
+		samples.sort(null);
+
+		ArrayList<K> splitters = new ArrayList<>();
+
+		for(int i = 1; i < pool.getParallelism(); i++) {
+			K splitter = samples.get(i * samples.size() / pool.getParallelism());
+
+			if(splitters.isEmpty() || splitter.compareTo(splitters.get(splitters.size() - 1)) > 0) {
+				splitters.add(splitter);
+			}
+		}
+
+		ArrayList<Callable<TemporaryRelation<T>>> merges = new ArrayList<>();
+
+		for(int i = 0; i <= splitters.size(); i++) {
+			K low = (i == 0) ? null : splitters.get(i - 1);
+			K high = (i == splitters.size()) ? null : splitters.get(i);
+
+			merges.add(() -> {
+				ArrayList<Iterator<Record<T>>> iterators = new ArrayList<>(readers.size());
+
+				for(BlockQueriable<T> reader: readers) {
+					iterators.add(rangeIterator(reader.openReader(), low, high));
+				}
+
+				TemporaryRelation<T> output = createRun();
+
+				Merger.mergeIterators(iterators, output, keyExtractor, eliminateDuplicates);
+
+				return output;
+			});
+		}
+
+		ArrayList<TemporaryRelation<T>> partitions = invoke(merges);
+
+		TemporaryRelation<T> result = TemporarySpace.concatenate("run", tupleMaker, partitions);
+
+		for(TemporaryRelation<T> run: runs) {
+			run.close();
+		}
+
+		return result;
+	}
+
+	// Records of a sorted run with low <= key < high (a null bound is unbounded).
+	// Starts at the last block whose first key is below the lower bound.
+	private Iterator<Record<T>> rangeIterator(Queriable<T> run, K low, K high) {
+		int startBlock = 0;
+
+		if(low != null) {
+			int left = 0;
+			int right = run.getNumberBlocks() - 1;
+
+			while(left <= right) {
+				int middle = (left + right) >>> 1;
+
+				if(keyExtractor.apply(run.get(middle).getRecord(0).getTuple()).compareTo(low) < 0) {
+					startBlock = middle;
+					left = middle + 1;
+				}
+				else {
+					right = middle - 1;
+				}
+			}
+		}
+
+		Iterator<Record<T>> iterator = run.iterator(startBlock, 0);
+
+		if(high != null) {
+			iterator = new PredicateIterator<T>(iterator, t -> keyExtractor.apply(t).compareTo(high) < 0, true);
+		}
 
-			relation3.save();
-			relation3.close();
-			currentRun++;
+		if(low != null) {
+			iterator = new PredicateIterator<T>(iterator, t -> keyExtractor.apply(t).compareTo(low) >= 0, false);
 		}
 
-		return currentRun - 1;
+		return iterator;
 	}
 
-	public Queriable<T> merge(Queriable<T> relation1, Queriable<T> relation2) {
-		Relation<T> result = new Relation<T>("merge", tupleMaker);
-		result.clear();
+	public TemporaryRelation<T> merge(Queriable<T> relation1, Queriable<T> relation2) {
+		TemporaryRelation<T> result = TemporarySpace.create("merge", tupleMaker);
 
 		Merger.merge(relation1, relation2, result, keyExtractor, eliminateDuplicates);
 
@@ -0,0 +1,106 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.sorting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import java.util.function.Function;
+
+import edu.davidson.csc353.microdb.files.Tuple;
+import edu.davidson.csc353.microdb.files.Record;
+import edu.davidson.csc353.microdb.files.MemoryRelation;
+
+import edu.davidson.csc353.microdb.files.Queriable;
+
+import edu.davidson.csc353.microdb.utils.DecentPQ;
+
+public class TopN<T extends Tuple, K extends Comparable<K>> {
+	private Queriable<T> queriable;
+	private Function<T, K> keyExtractor;
+
+	private int limit;
+
+	private boolean descending;
+
+	private class Entry implements Comparable<Entry> {
+		public T tuple;
+		public K key;
+		public long sequence;
+
+		public Entry(T tuple, K key, long sequence) {
+			this.tuple = tuple;
+			this.key = key;
+			this.sequence = sequence;
+		}
+
+		// The heap root is the worst entry kept so far. Among equal keys,
+		// the later entry is the worse one, so ties keep input order.
+		public int compareTo(Entry other) {
+			int keyCompare = key.compareTo(other.key);
+
+			if(keyCompare != 0) {
+				return descending ? keyCompare : -keyCompare;
+			}
+
+			return -Long.compare(sequence, other.sequence);
+		}
+	}
+
+	public TopN(Queriable<T> queriable, Function<T, K> keyExtractor, int limit) {
+		this.queriable = queriable;
+		this.keyExtractor = keyExtractor;
+
+		this.limit = limit;
+
+		this.descending = false;
+	}
+
+	public void setDescending(boolean descending) {
+		this.descending = descending;
+	}
+
+	// Single pass over the input, O(limit) memory and no temporary files
+	public Queriable<T> top() {
+		DecentPQ<Entry> heap = new DecentPQ<>();
+
+		long sequence = 0;
+
+		for(Record<T> record: queriable) {
+			if(limit <= 0) {
+				break;
+			}
+
+			T tuple = record.getTuple();
+			Entry entry = new Entry(tuple, keyExtractor.apply(tuple), sequence++);
+
+			if(heap.size() < limit) {
+				heap.add(entry);
+			}
+			else if(heap.peek().compareTo(entry) < 0) {
+				heap.removeMin();
+				heap.add(entry);
+			}
+		}
+
+		ArrayList<T> best = new ArrayList<>(heap.size());
+
+		while(heap.size() > 0) {
+			best.add(heap.removeMin().tuple);
+		}
+
+		Collections.reverse(best);
+
+		MemoryRelation<T> result = new MemoryRelation<T>();
+
+		for(T tuple: best) {
+			result.appendRecord(new Record<T>(tuple));
+		}
+
+		return result;
+	}
+}
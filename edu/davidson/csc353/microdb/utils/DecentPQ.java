@@ -130,11 +130,12 @@ public class DecentPQ<T extends Comparable<T>> {
 			return last;
 		}
 
-		// Otherwise, replace the last element into the remove position and move down
+		// Otherwise, replace the last element into the remove position; it came from
+		// another subtree, so it may be smaller than its new parent: move up, then down
 		nodes.set(position, last);
 		positionMap.put(last, position);
 		
-		moveDown(position);
+		moveDown(moveUp(position));
 		
 		return removed;	
 	}
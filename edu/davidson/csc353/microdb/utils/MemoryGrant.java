@@ -0,0 +1,65 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.utils;
+
+// Memory held by one operator, obtained from the MemoryManager.
+// Closing the grant gives back everything still reserved.
+public class MemoryGrant implements AutoCloseable {
+	private String purpose;
+
+	// Guarded by the MemoryManager
+	long memoryWanted;
+	long memoryUsed;
+
+	MemoryGrant(String purpose, long memoryWanted) {
+		this.purpose = purpose;
+
+		this.memoryWanted = memoryWanted;
+		this.memoryUsed = 0;
+	}
+
+	public String getPurpose() {
+		return purpose;
+	}
+
+	// False if the memory is not available: the operator should write records out first
+	public boolean reserve(long bytes) {
+		return MemoryManager.reserve(this, bytes);
+	}
+
+	// Reserves even past the limit, for operators that cannot make progress otherwise
+	// (e.g., to hold a single record)
+	public void forceReserve(long bytes) {
+		MemoryManager.forceReserve(this, bytes);
+	}
+
+	public void release(long bytes) {
+		MemoryManager.release(this, bytes);
+	}
+
+	// Most memory the grant can hold right now
+	public long getLimit() {
+		return MemoryManager.getLimit(this);
+	}
+
+	public long getMemoryUsed() {
+		synchronized(MemoryManager.class) {
+			return memoryUsed;
+		}
+	}
+
+	// True once the grant holds more than its limit, i.e., memory is being reclaimed from it
+	public boolean shouldRelease() {
+		synchronized(MemoryManager.class) {
+			return memoryUsed > MemoryManager.getLimit(this);
+		}
+	}
+
+	public void close() {
+		MemoryManager.unregister(this);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Author: Hammurabi Mendes
+ * License: BSD-3-Clause
+ * 
+ * Implemented for CSC353 (Database Systems) at Davidson College.
+ */
+package edu.davidson.csc353.microdb.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Divides a single, process-wide memory budget among the operators that hold
+// records in memory, such as sorts and hash aggregations. Each operator registers
+// for a grant, and reserves memory from it as its data grows.
+//
+// An operator may take any memory left free, up to what it asked for. Once the
+// budget is used up, each grant is entitled to an equal share of it. Reclaiming is
+// cooperative: a grant holding more than its share is refused new memory (and its
+// shouldRelease() turns true) until its operator writes records out and releases them.
+public class MemoryManager {
+	public static final long MEMORY_BUDGET = 1 << 24;
+
+	private static long memoryBudget = MEMORY_BUDGET;
+	private static long memoryUsed = 0;
+
+	private static Set<MemoryGrant> grants = new HashSet<>();
+
+	// The purpose is only informative (e.g., "sort", "aggregate")
+	public static synchronized MemoryGrant register(String purpose, long memoryWanted) {
+		MemoryGrant grant = new MemoryGrant(purpose, memoryWanted);
+
+		grants.add(grant);
+
+		return grant;
+	}
+
+	public static synchronized void setMemoryBudget(long memoryBudget) {
+		MemoryManager.memoryBudget = memoryBudget;
+	}
+
+	public static synchronized long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public static synchronized long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	public static synchronized int getNumberGrants() {
+		return grants.size();
+	}
+
+	// Memory every open grant is entitled to
+	public static synchronized long getShare() {
+		return memoryBudget / Math.max(1, grants.size());
+	}
+
+	// The larger of the share and what the grant could have with the free memory
+	// other grants are not entitled to, but never more than it asked for
+	static synchronized long getLimit(MemoryGrant grant) {
+		long share = getShare();
+
+		long memoryFree = memoryBudget - memoryUsed;
+
+		for(MemoryGrant other: grants) {
+			if(other != grant) {
+				memoryFree -= Math.max(0, Math.min(share, other.memoryWanted) - other.memoryUsed);
+			}
+		}
+
+		return Math.min(grant.memoryWanted, Math.max(share, grant.memoryUsed + memoryFree));
+	}
+
+	static synchronized boolean reserve(MemoryGrant grant, long bytes) {
+		if(grant.memoryUsed + bytes > getLimit(grant) || memoryUsed + bytes > memoryBudget) {
+			return false;
+		}
+
+		forceReserve(grant, bytes);
+
+		return true;
+	}
+
+	static synchronized void forceReserve(MemoryGrant grant, long bytes) {
+		grant.memoryUsed += bytes;
+		memoryUsed += bytes;
+	}
+
+	static synchronized void release(MemoryGrant grant, long bytes) {
+		grant.memoryUsed -= bytes;
+		memoryUsed -= bytes;
+	}
+
+	static synchronized void unregister(MemoryGrant grant) {
+		if(grants.remove(grant)) {
+			release(grant, grant.memoryUsed);
+		}
+	}
+}